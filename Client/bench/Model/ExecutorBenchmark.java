@@ -0,0 +1,136 @@
+/*
+ * Type class Model.ExecutorBenchmark. Compares the executors of the server (executor=fixed or virtual on the
+ * server configuration) as the concurrent sales desks grow. On each step every desk keeps its push
+ * connection open and sends travel searches one after another, as fast as they are answered, over the
+ * persistent connections of the client; the throughput and latency of the searches are measured. Run it once
+ * against a server started with each executor, giving the executor to label the results. The server and
+ * port are those of the client configuration (see Model.PushLoadBenchmark).
+ *
+ * Usage: java Model.ExecutorBenchmark executor [concurrent desks on each step, 100 1000 10000 by default]
+ * (from the client directory, with twice as many threads and as many open files allowed as desks). The
+ * exit code is the number of steps whose desks did not all connect.
+ *
+ * Model.ExecutorBenchmark.java
+ *
+ * @version 2.0
+ * @author Pablo Sanz Alguacil
+ */
+
+package Model;
+
+import Model.Cloud.Client;
+import Model.Cloud.CommunicationPrimitive;
+import Model.Cloud.MultiplexedClient;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ExecutorBenchmark {
+    private static final int[] DEFAULT_STEPS = {100, 1000, 10000};
+    private static final int CONNECTIONS = 16; //Persistent connections shared by the desks
+    private static final long WARMUP_TIME = 3000; //milliseconds, of each step
+    private static final long MEASURE_TIME = 10000; //milliseconds, of each step
+    private static final String USAGE = "Usage: java Model.ExecutorBenchmark executor [concurrent desks...]";
+    private static final String HEADER = "%-8s %8s %10s %12s %10s %10s %8s%n";
+    private static final String ROW = "%-8s %8d %10d %12.1f %10.3f %10.3f %8d%n";
+    private static final String[] COLUMNS = {"executor", "desks", "connected", "requests/s", "median ms", "p99 ms",
+            "errors"};
+    private static final String NOT_CONNECTED = "FAILED: %d of %d desks connected%n";
+
+
+    /**
+     * Main method.
+     * @param args String[] executor of the server, and concurrent desks on each step (optional)
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.out.println(USAGE);
+            System.exit(1);
+        }
+        String executor = args[0];
+        int[] steps = args.length > 1
+                ? Arrays.stream(args, 1, args.length).mapToInt(Integer::parseInt).toArray() : DEFAULT_STEPS;
+        PushLoadBenchmark.configure();
+        Client client = new MultiplexedClient(PushLoadBenchmark.serverURL, PushLoadBenchmark.serverPort,
+                CONNECTIONS);
+        System.out.printf(HEADER, (Object[]) COLUMNS);
+
+        AtomicInteger connected = new AtomicInteger();
+        int desks = 0;
+        int failed = 0;
+        for (int step : steps) {
+            for (; desks < step; desks++) {
+                PushLoadBenchmark.connectDesk(desks, connected);
+            }
+            if ( ! PushLoadBenchmark.awaitDesks(desks, connected)) {
+                System.out.printf(NOT_CONNECTED, connected.get(), desks);
+                failed++;
+            }
+            measure(executor, client, desks, connected.get());
+        }
+        System.exit(failed); //The desks are left connected until the end
+    }
+
+
+    /**
+     * Lets every desk send searches for a while, and prints how many were answered per second and how
+     * long they took, once warmed up.
+     * @param executor String of the server
+     * @param client Client shared by the desks
+     * @param desks Integer
+     * @param connected Integer desks connected
+     * @throws InterruptedException
+     */
+    private static void measure(String executor, Client client, int desks, int connected)
+            throws InterruptedException {
+
+        long measureStart = System.currentTimeMillis() + WARMUP_TIME;
+        long end = measureStart + MEASURE_TIME;
+        List<long[][]> deskLatencies = new ArrayList<>(); //Read once the requesters are joined
+        AtomicLong errors = new AtomicLong();
+
+        Thread[] requesters = new Thread[desks];
+        for (int desk = 0; desk < desks; desk++) {
+            long[][] latencies = {new long[64]};
+            deskLatencies.add(latencies);
+            int[] answered = new int[1];
+            requesters[desk] = new Thread(null, () -> {
+                List<String> results = new ArrayList<>();
+                long now;
+                while ((now = System.currentTimeMillis()) < end) {
+                    long start = System.nanoTime();
+                    try {
+                        client.sendRequest(CommunicationPrimitive.SEARCH_TRAVEL, Client.WAITTIME_SERVER,
+                                PushLoadBenchmark.clientID + "\n" + PushLoadBenchmark.TRAVEL_ID, results);
+                    } catch (Exception e) {
+                        if (now >= measureStart) {
+                            errors.incrementAndGet();
+                        }
+                        continue;
+                    }
+                    if (now >= measureStart) {
+                        if (answered[0] == latencies[0].length) {
+                            latencies[0] = Arrays.copyOf(latencies[0], answered[0] * 2);
+                        }
+                        latencies[0][answered[0]++] = System.nanoTime() - start;
+                    }
+                }
+                latencies[0] = Arrays.copyOf(latencies[0], answered[0]);
+            }, "requester-" + desk, PushLoadBenchmark.DESK_STACK_SIZE);
+            requesters[desk].setDaemon(true);
+            requesters[desk].start();
+        }
+        for (Thread requester : requesters) {
+            requester.join();
+        }
+
+        long[] all = deskLatencies.stream().flatMapToLong(latencies -> Arrays.stream(latencies[0]))
+                .sorted().toArray();
+        double median = all.length > 0 ? all[all.length / 2] / 1e6 : 0;
+        double p99 = all.length > 0 ? all[all.length * 99 / 100] / 1e6 : 0;
+        System.out.printf(ROW, executor, desks, connected, all.length * 1000.0 / MEASURE_TIME, median, p99,
+                errors.get());
+    }
+}
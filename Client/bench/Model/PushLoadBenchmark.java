@@ -0,0 +1,174 @@
+/*
+ * Type class Model.PushLoadBenchmark. Measures the latency of the requests to a running server while more
+ * and more sales desks keep their push connection open. Push sessions are not kept on the requests executor,
+ * so the latency must stay flat however many desks are connected. The server and port are those of the
+ * client configuration, and every desk connects with its client ID.
+ *
+ * Usage: java Model.PushLoadBenchmark [connected desks on each step, 0 250 500 1000 by default]
+ * (from the client directory, with as many open files allowed as desks). The exit code is the number of
+ * failed checks: steps whose desks did not all connect, and a last step much slower than the first one.
+ *
+ * The benchmarks and checks of the client are kept on the bench source root, out of Client.jar: they are
+ * compiled along with src and run from the client directory.
+ *
+ * Model.PushLoadBenchmark.java
+ *
+ * @version 2.0
+ * @author Pablo Sanz Alguacil
+ */
+
+package Model;
+
+import Model.Cloud.Client;
+import Model.Cloud.CommunicationPrimitive;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class PushLoadBenchmark {
+    private static final String CONFIG_FILE_PATH  = "storage/conf/config.properties";
+    private static final String SERVER_URL_PARAMETER = "server";
+    private static final String SERVER_PORT_PARAMETER = "port";
+    private static final String CLIENT_ID_PARAMETER = "clientID";
+    private static final int[] DEFAULT_STEPS = {0, 250, 500, 1000};
+    private static final int SAMPLES = 500; //Requests measured on each step
+    private static final int WARMUP = 200;
+    static final String TRAVEL_ID = "1";
+    static final int DESK_STACK_SIZE = 64 * 1024; //bytes, a desk only waits for the server
+    private static final long CONNECTION_WAIT = 60 * 1000; //milliseconds, for the desks of a step
+    private static final long CONNECTION_POLL = 50; //milliseconds
+    private static final double FLAT_FACTOR = 2.0; //Of the last median latency against the first one
+    private static final double FLAT_SLACK = 1.0; //milliseconds, as sub-millisecond medians are noisy
+    private static final String HEADER = "%8s %10s %10s %10s %10s%n";
+    private static final String ROW = "%8d %10d %10.3f %10.3f %10.3f%n";
+    private static final String[] COLUMNS = {"desks", "connected", "median ms", "p99 ms", "max ms"};
+    private static final String NOT_CONNECTED = "FAILED: %d of %d desks connected%n";
+    private static final String NOT_FLAT = "FAILED: median latency went from %.3f ms to %.3f ms%n";
+    private static final String CHECKS_FAILED = "%d checks failed%n";
+
+    static String serverURL;
+    static int serverPort;
+    static String clientID;
+
+
+    /**
+     * Main method.
+     * @param args String[] connected desks on each step (optional)
+     */
+    public static void main(String[] args) throws Exception {
+        configure();
+        int[] steps = args.length > 0 ? Arrays.stream(args).mapToInt(Integer::parseInt).toArray() : DEFAULT_STEPS;
+
+        for (int i = 0; i < WARMUP; i++) {
+            request();
+        }
+        System.out.printf(HEADER, (Object[]) COLUMNS);
+
+        AtomicInteger connected = new AtomicInteger();
+        int desks = 0;
+        int failed = 0;
+        double firstMedian = -1;
+        double lastMedian = -1;
+        for (int step : steps) {
+            for (; desks < step; desks++) {
+                connectDesk(desks, connected);
+            }
+            if ( ! awaitDesks(desks, connected)) {
+                System.out.printf(NOT_CONNECTED, connected.get(), desks);
+                failed++;
+            }
+
+            double[] latencies = new double[SAMPLES];
+            for (int i = 0; i < SAMPLES; i++) {
+                latencies[i] = request();
+            }
+            Arrays.sort(latencies);
+            lastMedian = latencies[SAMPLES / 2];
+            if (firstMedian < 0) {
+                firstMedian = lastMedian;
+            }
+            System.out.printf(ROW, desks, connected.get(), lastMedian, latencies[SAMPLES * 99 / 100],
+                    latencies[SAMPLES - 1]);
+        }
+
+        if (lastMedian > firstMedian * FLAT_FACTOR + FLAT_SLACK) {
+            System.out.printf(NOT_FLAT, firstMedian, lastMedian);
+            failed++;
+        }
+        if (failed > 0) {
+            System.out.printf(CHECKS_FAILED, failed);
+        }
+        System.exit(failed); //The desks are left connected until the end
+    }
+
+
+    /**
+     * Loads the server, port and client ID of the client configuration.
+     * @throws IOException
+     */
+    static void configure() throws IOException {
+        Properties config = new Properties();
+        config.load(new FileInputStream(CONFIG_FILE_PATH));
+        serverURL = config.getProperty(SERVER_URL_PARAMETER);
+        serverPort = Integer.parseInt(config.getProperty(SERVER_PORT_PARAMETER));
+        clientID = config.getProperty(CLIENT_ID_PARAMETER);
+    }
+
+
+    /**
+     * Connects a sales desk for push requests on its own thread, which waits for the server requests
+     * until the benchmark ends. The desk is counted once it gets its connection ID.
+     * @param desk Integer number of the desk
+     * @param connected AtomicInteger desks connected
+     */
+    static void connectDesk(int desk, AtomicInteger connected) {
+        Thread thread = new Thread(null, () -> {
+            try {
+                new Client(serverURL, serverPort).sendLongPollingRequest(CommunicationPrimitive.CONNECT_PUSH,
+                        Client.WAITTIME_LONGPOOLING, clientID, (request, results) -> {
+                            if (request == CommunicationPrimitive.NEW_CONNECTION_ID) {
+                                connected.incrementAndGet();
+                            }
+                            return true;
+                        });
+            } catch (Exception e) { //Not counted, or disconnected by the server
+            }
+        }, "desk-" + desk, DESK_STACK_SIZE);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+
+    /**
+     * Waits until the desks connected, or for CONNECTION_WAIT at most.
+     * @param desks Integer desks expected
+     * @param connected AtomicInteger desks connected
+     * @return Boolean true if all of them connected
+     * @throws InterruptedException
+     */
+    static boolean awaitDesks(int desks, AtomicInteger connected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + CONNECTION_WAIT;
+        while (connected.get() < desks && System.currentTimeMillis() < deadline) {
+            Thread.sleep(CONNECTION_POLL);
+        }
+        return connected.get() >= desks;
+    }
+
+
+    /**
+     * Sends a travel search and measures how long the answer takes.
+     * @return Double milliseconds
+     * @throws Exception
+     */
+    private static double request() throws Exception {
+        List<String> results = new ArrayList<>();
+        long start = System.nanoTime();
+        new Client(serverURL, serverPort).sendRequest(CommunicationPrimitive.SEARCH_TRAVEL, Client.WAITTIME_SERVER,
+                clientID + "\n" + TRAVEL_ID, results);
+        return (System.nanoTime() - start) / 1e6;
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Type class Model.RouteSearchCheck. Checks the route searches against a running server, with both dates,
+ * with only one of them and with none, so the open-ended requests go through the whole protocol. The server
+ * and port are those of the client configuration; the server must be started on its sample data.
+ *
+ * Usage: java Model.RouteSearchCheck (from the client directory)
+ *
+ * Model.RouteSearchCheck.java
+ *
+ * @version 2.0
+ * @author Pablo Sanz Alguacil
+ */
+
+package Model;
+
+import Internationalization.Location;
+import java.util.GregorianCalendar;
+import java.util.List;
+
+public class RouteSearchCheck {
+    private static final int CONNECTION_WAIT = 1500; //milliseconds
+    private static final String CHECK_FAILED = "FAILED %s: %d travels, %d expected%n";
+    private static final String CHECK_PASSED = "Passed %s: %d travels%n";
+    private static final String CHECKS_FAILED = "%d checks failed%n";
+
+
+    /**
+     * Main method.
+     * @param args String[] not used
+     */
+    public static void main(String[] args) throws Exception {
+        SalesDesk salesDesk = SalesDesk.getSingletonInstance(Location.getSingletonInstance("en", "US"));
+        salesDesk.connect();
+        Thread.sleep(CONNECTION_WAIT);
+
+        GregorianCalendar first = new GregorianCalendar(2020, 4, 8);
+        GregorianCalendar last = new GregorianCalendar(2020, 4, 28);
+        int failed = 0;
+        failed += check("no dates", salesDesk.searchRoute("MADRID", "SANTANDER", null, null), 3);
+        failed += check("only first day", salesDesk.searchRoute("ZARAGOZA", "VALENCIA", first, null), 2);
+        failed += check("only last day", salesDesk.searchRoute("ZARAGOZA", "VALENCIA", null, last), 2);
+        failed += check("both days", salesDesk.searchRoute("ZARAGOZA", "VALENCIA", last, last), 1);
+        failed += check("unknown route", salesDesk.searchRoute("NOWHERE", "VALENCIA", null, null), 0);
+
+        if (failed > 0) {
+            System.out.printf(CHECKS_FAILED, failed);
+        }
+        System.exit(failed);
+    }
+
+
+    /**
+     * Checks the number of travels found by a search.
+     * @param name String
+     * @param travels List<Travel> found, or null if the server did not answer them
+     * @param expected Integer
+     * @return Integer 1 if the check failed, 0 otherwise
+     */
+    private static int check(String name, List<Travel> travels, int expected) {
+        int found = travels == null ? -1 : travels.size();
+        if (found != expected) {
+            System.out.printf(CHECK_FAILED, name, found, expected);
+            return 1;
+        }
+        System.out.printf(CHECK_PASSED, name, found);
+        return 0;
+    }
+}
@@ -31,6 +31,7 @@ public class Location {
     public static final String FILL_ALL_GAPS = "FILL_ALL_GAPS";
     public static final String INSTANCE_ALREADY_CREATED = "INSTANCE_ALREADY_CREATED";
     public static final String ROUTES = "ROUTES";
+    public static final String FREE_SEATS = "FREE_SEATS";
     public static final String ASSIGN = "ASSIGN";
     public static final String DEALLOCATE = "DEALLOCATE";
     public static final String GENERATE_ROUTE_SHEET = "GENERATE_ROUTE_SHEET";
@@ -0,0 +1,53 @@
+/*
+ * Type class Model.Booking. A seat held by a passenger on a travel, as answered by the server: the seat,
+ * a separator and then the travel.
+ *
+ * Model.Booking.java
+ *
+ * @version 2.0
+ * @author Pablo Sanz Alguacil
+ */
+
+package Model;
+
+import java.util.NoSuchElementException;
+
+public class Booking {
+    private static final String DNI_SEAT_SEPARATOR = "-";
+
+    private Travel travel;
+    private int seat;
+
+
+    /**
+     * Constructor method to create a new Model.Booking from a received line.
+     * @param line String
+     */
+    public Booking(String line) throws NoSuchElementException {
+        int separator = line.indexOf(DNI_SEAT_SEPARATOR);
+        try {
+            seat = Integer.parseInt(line.substring(0, separator));
+        } catch (NumberFormatException | StringIndexOutOfBoundsException e) {
+            throw new NoSuchElementException(line);
+        }
+        travel = new Travel(line.substring(separator + 1));
+    }
+
+
+    /**
+     * Returns the travel.
+     * @return Travel
+     */
+    public Travel getTravel() {
+        return travel;
+    }
+
+
+    /**
+     * Returns the seat.
+     * @return Integer
+     */
+    public int getSeat() {
+        return seat;
+    }
+}
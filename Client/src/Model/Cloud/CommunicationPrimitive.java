@@ -15,10 +15,16 @@ public enum CommunicationPrimitive {
     TEST("test"),
     SEARCH_TRAVEL("search_travel"),
     WHO_SITTING("who_is_sitting"),
+    SEAT_MAP("seat_map"),
     SEARCH_TRAVELS_PER_DATE("search_travels_per_date"),
+    SEARCH_TRAVELS_BETWEEN_DATES("search_travels_between_dates"),
+    SEARCH_ROUTE("search_route"),
+    PASSENGER_BOOKINGS("passenger_bookings"),
+    AVAILABILITY("availability"),
     IS_SEAT_FREE("is_seat_free"),
     ASSIGN("assign"),
     DEALLOCATE("deallocate"),
+    MULTIPLEX("multiplex"),
     END("end"),
     OK("ok"),
     NOK("nok");
@@ -31,10 +37,16 @@ public enum CommunicationPrimitive {
                     TEST.toString() + "|" +
                     SEARCH_TRAVEL.toString() + "|" +
                     WHO_SITTING.toString() + "|" +
+                    SEAT_MAP.toString() + "|" +
                     SEARCH_TRAVELS_PER_DATE.toString() + "|" +
+                    SEARCH_TRAVELS_BETWEEN_DATES.toString() + "|" +
+                    SEARCH_ROUTE.toString() + "|" +
+                    PASSENGER_BOOKINGS.toString() + "|" +
+                    AVAILABILITY.toString() + "|" +
                     IS_SEAT_FREE.toString() + "|" +
                     ASSIGN.toString() + "|" +
                     DEALLOCATE.toString() + "|" +
+                    MULTIPLEX.toString() + "|" +
                     END.toString() + "|" +
                     OK.toString() + "|" +
                     NOK.toString());
@@ -73,9 +85,24 @@ public enum CommunicationPrimitive {
         else if (token.equals(WHO_SITTING.toString())){
             return WHO_SITTING;
         }
+        else if (token.equals(SEAT_MAP.toString())) {
+            return SEAT_MAP;
+        }
         else if (token.equals(SEARCH_TRAVELS_PER_DATE.toString())) {
             return SEARCH_TRAVELS_PER_DATE;
         }
+        else if (token.equals(SEARCH_TRAVELS_BETWEEN_DATES.toString())) {
+            return SEARCH_TRAVELS_BETWEEN_DATES;
+        }
+        else if (token.equals(SEARCH_ROUTE.toString())) {
+            return SEARCH_ROUTE;
+        }
+        else if (token.equals(PASSENGER_BOOKINGS.toString())) {
+            return PASSENGER_BOOKINGS;
+        }
+        else if (token.equals(AVAILABILITY.toString())) {
+            return AVAILABILITY;
+        }
         else if (token.equals(IS_SEAT_FREE.toString())){
             return IS_SEAT_FREE;
         }
@@ -85,6 +112,9 @@ public enum CommunicationPrimitive {
         else if (token.equals(DEALLOCATE.toString())) {
             return DEALLOCATE;
         }
+        else if (token.equals(MULTIPLEX.toString())) {
+            return MULTIPLEX;
+        }
         else if (token.equals(END.toString())) {
             return END;
         }
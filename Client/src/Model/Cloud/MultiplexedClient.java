@@ -0,0 +1,222 @@
+/**
+ *  MultiplexedClient.java
+ *
+ *  Client that keeps persistent connections to the server. Every request carries a correlation ID
+ *  and is answered on a frame, so several requests can be in flight on the same connection.
+ *
+ *  Frame: "<correlationID> <linesNumber>" header line followed by linesNumber lines.
+ */
+
+package Model.Cloud;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+public class MultiplexedClient extends Client {
+    private static final String HEADER_SEPARATOR = " ";
+    private static final String LINE_SEPARATOR = "\n";
+    private static final String CONNECTION_CLOSED = "Connection closed by server";
+    private static final String FRAME_ERROR = "Malformed frame received";
+
+    private String serverURL;
+    private int serverPort;
+    private Connection[] connections;
+    private AtomicInteger correlationIDs;
+
+
+    /**
+     * Persistent connection to the server. A reader thread completes the pending requests as their
+     * responses arrive.
+     */
+    private class Connection implements Runnable {
+        private Socket socket;
+        private BufferedReader influx;
+        private PrintWriter outflux;
+        private Map<String, CompletableFuture<List<String>>> pendingRequests;
+        private volatile boolean open;
+
+        /**
+         * Constructor method. Opens the connection and starts reading responses.
+         * @throws IOException
+         */
+        private Connection() throws IOException {
+            socket = new Socket(serverURL, serverPort);
+            influx = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+            outflux = new PrintWriter(new BufferedWriter(new OutputStreamWriter(
+                    socket.getOutputStream())), true);
+            pendingRequests = new ConcurrentHashMap<>();
+            open = true;
+
+            outflux.println(CommunicationPrimitive.MULTIPLEX);
+
+            Thread reader = new Thread(this);
+            reader.setDaemon(true);
+            reader.start();
+        }
+
+        /**
+         * Sends a request frame.
+         * @param correlationID String
+         * @param request CommunicationPrimitive
+         * @param parameters String
+         * @return CompletableFuture with the response lines
+         * @throws IOException
+         */
+        private CompletableFuture<List<String>> send(String correlationID, CommunicationPrimitive request,
+                                                     String parameters) throws IOException {
+            CompletableFuture<List<String>> response = new CompletableFuture<>();
+            pendingRequests.put(correlationID, response);
+
+            StringBuilder frame = new StringBuilder(request.toString()).append(LINE_SEPARATOR);
+            int linesNumber = 1;
+            if (parameters != null) {
+                frame.append(parameters).append(LINE_SEPARATOR);
+                linesNumber += parameters.split(LINE_SEPARATOR, -1).length;
+            }
+
+            synchronized (this) {
+                outflux.print(correlationID + HEADER_SEPARATOR + linesNumber + LINE_SEPARATOR + frame);
+                outflux.flush();
+            }
+
+            if (outflux.checkError()) {
+                pendingRequests.remove(correlationID);
+                close();
+                throw new IOException(CONNECTION_CLOSED);
+            }
+            return response;
+        }
+
+        /**
+         * Reads response frames and completes their requests.
+         */
+        @Override
+        public void run() {
+            try {
+                String line;
+                while ((line = influx.readLine()) != null) {
+                    String[] header = line.split(HEADER_SEPARATOR);
+                    List<String> lines = new ArrayList<>();
+
+                    int linesNumber = Integer.parseInt(header[1]);
+                    for (int i = 0; i < linesNumber; i++) {
+                        lines.add(influx.readLine());
+                    }
+
+                    CompletableFuture<List<String>> response = pendingRequests.remove(header[0]);
+                    if (response != null) {
+                        response.complete(lines);
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                // The connection is closed below
+            }
+            close();
+        }
+
+        /**
+         * Closes the connection. The pending requests fail.
+         */
+        private void close() {
+            open = false;
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Connection has been already closed
+            }
+
+            for (CompletableFuture<List<String>> response : pendingRequests.values()) {
+                response.completeExceptionally(new IOException(CONNECTION_CLOSED));
+            }
+            pendingRequests.clear();
+        }
+    }
+
+
+    /**
+     * Constructor method. The connections are opened on the first request.
+     * @param serverURL String
+     * @param serverPort Integer
+     * @param connectionsNumber Integer
+     */
+    public MultiplexedClient(String serverURL, int serverPort, int connectionsNumber) {
+        super(serverURL, serverPort);
+        this.serverURL = serverURL;
+        this.serverPort = serverPort;
+        connections = new Connection[connectionsNumber];
+        correlationIDs = new AtomicInteger();
+    }
+
+
+    /**
+     * Returns an open connection for a request (round robin), opening it again if it was closed.
+     * @param sequence Integer
+     * @return Connection
+     * @throws IOException
+     */
+    private Connection getConnection(int sequence) throws IOException {
+        int index = Math.floorMod(sequence, connections.length);
+
+        synchronized (connections) {
+            if (connections[index] == null || ! connections[index].open) {
+                connections[index] = new Connection();
+            }
+            return connections[index];
+        }
+    }
+
+
+    /**
+     * Sends a request to the server returning the results. It does not wait for other requests in flight.
+     * @param request CommunicationPrimitives
+     * @param waitTime Integer
+     * @param parameters String
+     * @param results List <String>
+     * @return CommunicationPrimitive
+     * @throws Exception
+     */
+    @Override
+    public CommunicationPrimitive sendRequest(CommunicationPrimitive request, int waitTime, String parameters,
+                                              List<String> results) throws Exception {
+        int sequence = correlationIDs.incrementAndGet();
+        String correlationID = String.valueOf(sequence);
+        Connection connection = getConnection(sequence);
+        CompletableFuture<List<String>> response = connection.send(correlationID, request, parameters);
+
+        List<String> lines;
+        try {
+            lines = waitTime > 0 ? response.get(waitTime, TimeUnit.MILLISECONDS) : response.get();
+        } catch (TimeoutException e) {
+            connection.pendingRequests.remove(correlationID);
+            throw new SocketTimeoutException();
+        } catch (ExecutionException e) {
+            throw (Exception) e.getCause();
+        }
+
+        if (lines.isEmpty()) {
+            throw new IOException(FRAME_ERROR);
+        }
+
+        results.clear();
+        results.addAll(lines.subList(1, lines.size()));
+        return CommunicationPrimitive.newPrimitive(new Scanner(new StringReader(lines.get(0))));
+    }
+}
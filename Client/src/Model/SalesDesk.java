@@ -12,6 +12,7 @@ package Model;
 import Internationalization.Location;
 import Model.Cloud.Client;
 import Model.Cloud.CommunicationPrimitive;
+import Model.Cloud.MultiplexedClient;
 import Model.Cloud.ServerListener;
 
 import java.beans.PropertyChangeListener;
@@ -28,10 +29,16 @@ public class SalesDesk implements ServerListener{
     private static final String SERVER_URL_PARAMETER = "server";
     private static final String SERVER_PORT_PARAMETER = "port";
     private static final String CLIENT_ID_PARAMETER = "clientID";
+    private static final String EXECUTOR_PARAMETER = "executor";
+    private static final String CONNECTIONS_PARAMETER = "connections";
+    private static final String VIRTUAL_EXECUTOR = "virtual";
+    private static final String VIRTUAL_THREAD_METHOD = "startVirtualThread";
 
     private String serverURL;
     private int serverPort;
     private String clientID;
+    private boolean virtualThreads;
+    private int connectionsNumber;
     private String defaultServerURL = "localhost";
     private int defaultServerPort = 60236;
     private String defaultClientID = "Guest";
@@ -42,6 +49,8 @@ public class SalesDesk implements ServerListener{
     private Client client;
 
     private static final String DISTRIBUTION_SEPARATOR = "x";
+    private static final String DNI_SEAT_SEPARATOR = "-";
+    private static final String ELEMENTS_SEPARATOR = ",";
     private static final String COLON = ": ";
     private static final String TEXT_SPACER = " ";
     private static final String SLASH = "/";
@@ -61,7 +70,12 @@ public class SalesDesk implements ServerListener{
         connected = false;
         observers = new PropertyChangeSupport(this);
         serverListener = this;
-        client = new Client(serverURL, serverPort);
+
+        if (connectionsNumber > 0) {
+            client = new MultiplexedClient(serverURL, serverPort, connectionsNumber);
+        } else {
+            client = new Client(serverURL, serverPort);
+        }
 
     }
 
@@ -115,6 +129,14 @@ public class SalesDesk implements ServerListener{
                 clientID = defaultClientID;
             }
 
+            virtualThreads = VIRTUAL_EXECUTOR.equalsIgnoreCase(config.getProperty(EXECUTOR_PARAMETER));
+
+            try {
+                connectionsNumber = Integer.parseInt(config.getProperty(CONNECTIONS_PARAMETER));
+            } catch (Exception e) {
+                connectionsNumber = 0;
+            }
+
         } catch (FileNotFoundException e) {
             setAllDefaults();
 
@@ -166,10 +188,11 @@ public class SalesDesk implements ServerListener{
 
 
     /**
-     * Stablishes connection to server by long polling.
+     * Stablishes connection to server by long polling. On virtual mode the connection runs on a virtual
+     * thread.
      */
     public void connect() {
-        new Thread() {
+        Runnable connection = new Runnable() {
             @Override
             public void run() {
                 Client client = new Client(serverURL, serverPort);
@@ -183,14 +206,24 @@ public class SalesDesk implements ServerListener{
                         observers.firePropertyChange(CONNECTED_PROPERTY, null, connected);
 
                         try {
-                            sleep(Client.WAITTIME_SERVER_RECONECT_ATTEMPT);
+                            Thread.sleep(Client.WAITTIME_SERVER_RECONECT_ATTEMPT);
                         } catch (InterruptedException e2) {
                             new RuntimeException();
                         }
                     }
                 }
             }
-        }.start();
+        };
+
+        if (virtualThreads) {
+            try {
+                Thread.class.getMethod(VIRTUAL_THREAD_METHOD, Runnable.class).invoke(null, connection);
+                return;
+            } catch (ReflectiveOperationException e) {
+                // Virtual threads not supported by this Java version
+            }
+        }
+        new Thread(connection).start();
     }
 
 
@@ -305,6 +338,35 @@ public class SalesDesk implements ServerListener{
     }
 
 
+    /**
+     * Returns the occupied seats of a travel with their passengers, sorted by seat, on a single request.
+     * The seat map carries the travel seats version, so later seat changes can be applied on it.
+     * @param travel Model.Travel
+     * @return SeatMap
+     */
+    public SeatMap seatMap(Travel travel) throws Exception{
+        SeatMap seatMap = new SeatMap();
+        if ( ! connected) {
+            return seatMap;
+        }
+
+        String parameters = clientID + "\n" + travel.getId();
+        List<String> results =  new ArrayList<>();
+        CommunicationPrimitive response = client.sendRequest(CommunicationPrimitive.SEAT_MAP,
+                Client.WAITTIME_SERVER, parameters, results);
+
+        if (response.equals(CommunicationPrimitive.SEAT_MAP) && ! results.isEmpty()) {
+            seatMap.setVersion(Long.parseLong(results.get(0)));
+            for (String result : results.subList(1, results.size())) {
+                int separator = result.indexOf(DNI_SEAT_SEPARATOR);
+                seatMap.put(Integer.parseInt(result.substring(0, separator)),
+                        new Passenger(result.substring(separator + 1)));
+            }
+        }
+        return seatMap;
+    }
+
+
     /**
      * Returns the travel route sheet of a travel.
      * @param travel Model.Travel
@@ -335,16 +397,13 @@ public class SalesDesk implements ServerListener{
                 .append(travel.getSeatsDistribution())
                 .append("\n\n");
 
-        plan.append(seatsStatus(travel));
+        Map<Integer, Passenger> seatMap = seatMap(travel).getSeats();
+        plan.append(seatsStatus(travel, seatMap));
         plan.append("\n\n");
 
-        Passenger passenger;
-        for(int i = 0; i < travel.getSeatsNumber(); i++) {
-            passenger = whoIsSitting(travel, i);
-            if(passenger != null) {
-                plan.append(location.getLabel(location.SEAT)).append(i).append(COLON)
-                        .append(passenger).append("\n");
-            }
+        for(Map.Entry<Integer, Passenger> seat : seatMap.entrySet()) {
+            plan.append(location.getLabel(location.SEAT)).append(seat.getKey()).append(COLON)
+                    .append(seat.getValue()).append("\n");
         }
 
         String name = travel.getId()+ location.getLabel(location.SHEET_NAME_TEXT) + ROUTE_SHEET_FILE_EXTENSION;
@@ -365,6 +424,17 @@ public class SalesDesk implements ServerListener{
      * @return StringBuilder
      */
     public StringBuilder seatsStatus(Travel travel) throws Exception {
+        return seatsStatus(travel, seatMap(travel).getSeats());
+    }
+
+
+    /**
+     * Returns the seats status of a travel for an already known seat map.
+     * @param travel Model.Travel
+     * @param seatMap Map<Integer, Passenger>
+     * @return StringBuilder
+     */
+    private StringBuilder seatsStatus(Travel travel, Map<Integer, Passenger> seatMap) {
         int cols = Integer.parseInt(travel.getSeatsDistribution().split(DISTRIBUTION_SEPARATOR)[0]) + 1;
         int rows = Integer.parseInt(travel.getSeatsDistribution().split(DISTRIBUTION_SEPARATOR)[1]);
         int seatsIndex = 1;
@@ -396,7 +466,7 @@ public class SalesDesk implements ServerListener{
                 } else if((row == (rows/2)) && (col > corridorColumn) && rows > MINUM_SIZE_BACK_DOOR) { //Back door
                     plan.append("  ");
                 } else {
-                    if (whoIsSitting(travel, seatsIndex) == null) {
+                    if (! seatMap.containsKey(seatsIndex)) {
                         plan.append(" ").append(" ").append(String.format("%02d", seatsIndex)).append(" ");
                     } else {
                         plan.append(" ").append("(").append(String.format("%02d", seatsIndex)).append(")");
@@ -441,6 +511,133 @@ public class SalesDesk implements ServerListener{
     }
 
 
+    /**
+     * Searches the travels between two dates, both included, in a single request.
+     * @param from GregorianCalendar
+     * @param to GregorianCalendar
+     * @return List<Travel> sorted by date, or null if the server did not answer them
+     */
+    public List<Travel> searchTravelsBetweenDates(GregorianCalendar from, GregorianCalendar to) throws Exception{
+        if ( ! connected) {
+            return null;
+        }
+
+        String parameters = clientID + "\n" + dateParameters(from) + "\n" + dateParameters(to);
+        List<String> results =  new ArrayList<>();
+        CommunicationPrimitive response = client.sendRequest(CommunicationPrimitive.SEARCH_TRAVELS_BETWEEN_DATES,
+                Client.WAITTIME_SERVER, parameters, results);
+
+        if (response.equals(CommunicationPrimitive.NOK)) {
+            return null;
+        }
+        List<Travel> travels = new ArrayList<>();
+        for (String travel : results) {
+            travels.add(new Travel(travel));
+        }
+        return travels;
+    }
+
+
+    /**
+     * Returns the free seats of every travel on a date, without asking for their seats.
+     * @param date GregorianCalendar
+     * @return Map<String, Integer> free seats by travel ID, or null if the server did not answer them
+     */
+    public Map<String, Integer> availability(GregorianCalendar date) throws Exception{
+        if ( ! connected) {
+            return null;
+        }
+
+        List<String> results =  new ArrayList<>();
+        CommunicationPrimitive response = client.sendRequest(CommunicationPrimitive.AVAILABILITY,
+                Client.WAITTIME_SERVER, clientID + "\n" + dateParameters(date), results);
+
+        if (response.equals(CommunicationPrimitive.NOK)) {
+            return null;
+        }
+        Map<String, Integer> availability = new HashMap<>();
+        for (String travel : results) {
+            String[] elements = travel.split(ELEMENTS_SEPARATOR);
+            try {
+                availability.put(elements[0], Integer.parseInt(elements[1]));
+            } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+                // Not a travel availability, skipped
+            }
+        }
+        return availability;
+    }
+
+
+    /**
+     * Returns the bookings of a passenger, sorted by travel date and seat.
+     * @param dni String
+     * @return List<Booking> or null if the server did not answer them
+     */
+    public List<Booking> passengerBookings(String dni) throws Exception{
+        if ( ! connected) {
+            return null;
+        }
+
+        List<String> results =  new ArrayList<>();
+        CommunicationPrimitive response = client.sendRequest(CommunicationPrimitive.PASSENGER_BOOKINGS,
+                Client.WAITTIME_SERVER, clientID + "\n" + dni, results);
+
+        if (response.equals(CommunicationPrimitive.NOK)) {
+            return null;
+        }
+        List<Booking> bookings = new ArrayList<>();
+        for (String booking : results) {
+            bookings.add(new Booking(booking));
+        }
+        return bookings;
+    }
+
+
+    /**
+     * Searches the travels of a route, optionally between two dates (both included).
+     * @param origin String
+     * @param destiny String
+     * @param from GregorianCalendar (null for no first day)
+     * @param to GregorianCalendar (null for no last day)
+     * @return List<Travel> sorted by departure, or null if the server did not answer them
+     */
+    public List<Travel> searchRoute(String origin, String destiny, GregorianCalendar from, GregorianCalendar to)
+            throws Exception{
+        if ( ! connected) {
+            return null;
+        }
+
+        String parameters = clientID + "\n" + origin + "\n" + destiny + "\n" + dateParameters(from) + "\n"
+                + dateParameters(to);
+        List<String> results =  new ArrayList<>();
+        CommunicationPrimitive response = client.sendRequest(CommunicationPrimitive.SEARCH_ROUTE,
+                Client.WAITTIME_SERVER, parameters, results);
+
+        if (response.equals(CommunicationPrimitive.NOK)) {
+            return null;
+        }
+        List<Travel> travels = new ArrayList<>();
+        for (String travel : results) {
+            travels.add(new Travel(travel));
+        }
+        return travels;
+    }
+
+
+    /**
+     * Returns a date as the year, month and day request lines. No date is sent as three empty lines.
+     * @param date GregorianCalendar
+     * @return String
+     */
+    private String dateParameters(GregorianCalendar date) {
+        if (date == null) {
+            return "\n\n";
+        }
+        return date.get(GregorianCalendar.YEAR) + "\n" + date.get(GregorianCalendar.MONTH) + "\n"
+                + date.get(GregorianCalendar.DAY_OF_MONTH);
+    }
+
+
     /**
      * It receives a new connectionID server request.
      * @param results List<String>
@@ -460,13 +657,18 @@ public class SalesDesk implements ServerListener{
 
 
     /**
-     * Receives a new assignation server request.
+     * Receives a new assignation server request. The seat change is passed to the observers.
      * @param property String
+     * @param results List<String>
      * @return Boolean
      * @throws IOException
      */
-    private boolean assignationServerRequest(String property, String id) throws IOException {
-        observers.firePropertyChange(property, null, id);
+    private boolean assignationServerRequest(String property, List<String> results) throws IOException {
+        try {
+            observers.firePropertyChange(property, null, new SeatChange(results));
+        } catch (NoSuchElementException e) {
+            return false;
+        }
         return true;
     }
 
@@ -477,10 +679,10 @@ public class SalesDesk implements ServerListener{
                 return newConnectionIDServerRequest(results);
 
             case ASSIGN:
-                return assignationServerRequest(SEAT_CHANGED_PROPERTY, results.get(0));
+                return assignationServerRequest(SEAT_CHANGED_PROPERTY, results);
 
             case DEALLOCATE:
-                return assignationServerRequest(SEAT_CHANGED_PROPERTY, results.get(0));
+                return assignationServerRequest(SEAT_CHANGED_PROPERTY, results);
 
             default:
                 return false;
@@ -0,0 +1,96 @@
+/*
+ * Type class Model.SeatChange. Seat change notified by the server: travel, seat, travel seats version and
+ * the new passenger (no passenger if the seat has been deallocated).
+ *
+ * Model.SeatChange.java
+ *
+ * @version 2.0
+ * @author Pablo Sanz Alguacil
+ */
+
+package Model;
+
+import java.util.List;
+import java.util.NoSuchElementException;
+
+public class SeatChange {
+    private static final int UNKNOWN = -1;
+
+    private String travelID;
+    private int seat;
+    private long version;
+    private Passenger passenger;
+
+
+    /**
+     * Constructor method to create a new Model.SeatChange from the received notification parameters. A
+     * notification with the travel ID only (older servers) has an unknown seat and version.
+     * @param parameters List<String>
+     */
+    public SeatChange(List<String> parameters) throws NoSuchElementException {
+        if (parameters.isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        travelID = parameters.get(0);
+        seat = UNKNOWN;
+        version = UNKNOWN;
+
+        if (parameters.size() > 2) {
+            try {
+                seat = Integer.parseInt(parameters.get(1));
+                version = Long.parseLong(parameters.get(2));
+            } catch (NumberFormatException e) {
+                seat = UNKNOWN;
+                version = UNKNOWN;
+            }
+        }
+        if (parameters.size() > 3) {
+            passenger = new Passenger(parameters.get(3));
+        }
+    }
+
+
+    /**
+     * Returns the travel ID.
+     * @return String
+     */
+    public String getTravelID() {
+        return travelID;
+    }
+
+
+    /**
+     * Returns the seat.
+     * @return Integer
+     */
+    public int getSeat() {
+        return seat;
+    }
+
+
+    /**
+     * Returns the travel seats version after the change.
+     * @return Long
+     */
+    public long getVersion() {
+        return version;
+    }
+
+
+    /**
+     * Returns the new passenger, or null if the seat has been deallocated.
+     * @return Passenger
+     */
+    public Passenger getPassenger() {
+        return passenger;
+    }
+
+
+    /**
+     * Checks if the notification carries the change itself. Otherwise the whole travel must be requested.
+     * @return Boolean
+     */
+    public boolean isKnown() {
+        return seat != UNKNOWN && version != UNKNOWN;
+    }
+}
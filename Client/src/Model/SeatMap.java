@@ -0,0 +1,76 @@
+/*
+ * Type class Model.SeatMap. Occupied seats of a travel with their passengers, and the travel seats version
+ * they belong to.
+ *
+ * Model.SeatMap.java
+ *
+ * @version 2.0
+ * @author Pablo Sanz Alguacil
+ */
+
+package Model;
+
+import java.util.Collections;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+public class SeatMap {
+    private TreeMap<Integer, Passenger> seats;
+    private long version;
+
+
+    /**
+     * Constructor method for an empty seat map.
+     */
+    public SeatMap() {
+        seats = new TreeMap<>();
+        version = -1;
+    }
+
+
+    /**
+     * Returns the passenger sited on a seat.
+     * @param seat Integer
+     * @return Passenger or null if the seat is free
+     */
+    public Passenger get(int seat) {
+        return seats.get(seat);
+    }
+
+
+    /**
+     * Returns the occupied seats with their passengers, sorted by seat. The map can not be modified.
+     * @return SortedMap<Integer, Passenger>
+     */
+    public SortedMap<Integer, Passenger> getSeats() {
+        return Collections.unmodifiableSortedMap(seats);
+    }
+
+
+    /**
+     * Sets the passenger sited on a seat.
+     * @param seat Integer
+     * @param passenger Passenger
+     */
+    void put(int seat, Passenger passenger) {
+        seats.put(seat, passenger);
+    }
+
+
+    /**
+     * Returns the travel seats version.
+     * @return Long
+     */
+    public long getVersion() {
+        return version;
+    }
+
+
+    /**
+     * Sets the travel seats version.
+     * @param version Long
+     */
+    void setVersion(long version) {
+        this.version = version;
+    }
+}
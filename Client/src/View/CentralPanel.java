@@ -11,6 +11,8 @@ package View;
 import Internationalization.Location;
 import Model.Passenger;
 import Model.SalesDesk;
+import Model.SeatChange;
+import Model.SeatMap;
 import Model.Travel;
 import javax.imageio.ImageIO;
 import javax.swing.*;
@@ -18,6 +20,8 @@ import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
 
 public class CentralPanel extends JPanel {
     private static final String DISTRIBUTION_SEPARATOR = "x";
@@ -34,6 +38,9 @@ public class CentralPanel extends JPanel {
     private MainFrame mainFrame;
     private SalesDesk salesDesk;
     private SeatBox seatBoxes[][];
+    private Map<Integer, SeatBox> seats;
+    private Travel travel;
+    private long version;
     private JPanel matrix;
     private JPanel infoPanel;
     private JLabel info;
@@ -75,6 +82,7 @@ public class CentralPanel extends JPanel {
      * @param travel Travel
      */
     public void updateMatrix(Travel travel) throws Exception {
+        this.travel = travel;
         matrix.removeAll();
         int cols = Integer.parseInt(travel.getSeatsDistribution().split(DISTRIBUTION_SEPARATOR)[0]) + CORRIDOR_GAPS;
         int rows = Integer.parseInt(travel.getSeatsDistribution().split(DISTRIBUTION_SEPARATOR)[1]);
@@ -86,13 +94,17 @@ public class CentralPanel extends JPanel {
     }
 
     /**
-     * Builds the matrix to represent the buses seats distribution.
+     * Builds the matrix to represent the buses seats distribution. The seats occupation is requested
+     * once for the whole travel.
      * @param travel Travel
      */
     private void buildMatrix(int rows, int cols, Travel travel) throws Exception {
         int seatsIndex = 1;
         int corridorColumn = (((cols - CORRIDOR_GAPS) / 2) + ((cols - CORRIDOR_GAPS) % 2));
         seatBoxes = new SeatBox[rows][cols];
+        seats = new HashMap<>();
+        SeatMap seatMap = salesDesk.seatMap(travel);
+        version = seatMap.getVersion();
 
         for(int row = 0; row < rows; row++) {
             for (int col = 0; col < cols; col++) {
@@ -101,8 +113,9 @@ public class CentralPanel extends JPanel {
                 } else if((row == (rows/2)) && (col > corridorColumn) && rows > MINUM_SIZE_BACK_DOOR) { //Back door
                     seatBoxes[row][col] = new SeatBox();
                 } else { //Seats
-                    Passenger passenger = salesDesk.whoIsSitting(travel, seatsIndex);
+                    Passenger passenger = seatMap.get(seatsIndex);
                     seatBoxes[row][col] = new SeatBox(mainFrame, seatsIndex, passenger);
+                    seats.put(seatsIndex, seatBoxes[row][col]);
                     seatsIndex++;
                 }
                 matrix.add(seatBoxes[row][col]);
@@ -110,10 +123,43 @@ public class CentralPanel extends JPanel {
         }
     }
 
+    /**
+     * Applies a seat change notified by the server on the shown travel, without requesting the whole
+     * travel again. Changes already included in the matrix are ignored.
+     * @param seatChange SeatChange
+     * @return Boolean false if the change can not be applied (other travel, unknown change or missed
+     * changes), so the matrix must be updated
+     */
+    public boolean applySeatChange(SeatChange seatChange) {
+        if (travel == null || ! travel.getId().equals(seatChange.getTravelID()) || ! seatChange.isKnown()
+                || version < 0) {
+            return false;
+        }
+        if (seatChange.getVersion() <= version) {
+            return true;
+        }
+
+        SeatBox seatBox = seats.get(seatChange.getSeat());
+        if (seatChange.getVersion() != version + 1 || seatBox == null) {
+            return false;
+        }
+
+        if (seatChange.getPassenger() != null) {
+            seatBox.setAssigned(seatChange.getPassenger());
+        } else {
+            seatBox.setDeallocated();
+        }
+        version = seatChange.getVersion();
+        seatBox.repaint();
+        return true;
+    }
+
+
     /**
      * Cleans the matrix.
      */
     public void cleanMatrix(){
+        travel = null;
         matrix.removeAll();
         this.revalidate();
         this.repaint();
@@ -13,6 +13,7 @@ import Control.ViewListener;
 import Internationalization.Location;
 import Model.Passenger;
 import Model.SalesDesk;
+import Model.SeatChange;
 import Model.Travel;
 
 import javax.swing.*;
@@ -22,9 +23,12 @@ import java.awt.event.WindowEvent;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.net.SocketTimeoutException;
+import java.util.ArrayList;
 import java.util.GregorianCalendar;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class MainFrame extends JFrame implements PropertyChangeListener{
     private static final String COLON = ": ";
@@ -41,6 +45,10 @@ public class MainFrame extends JFrame implements PropertyChangeListener{
     private SouthPanel southPanel;
     private CentralPanel centralPanel;
     private GregorianCalendar selectedDate;
+    private GregorianCalendar loadedWeek;
+    private List<Travel> loadedWeekTravels;
+    private GregorianCalendar shownDate;
+    private AtomicBoolean freeSeatsRefreshPending = new AtomicBoolean();
     private String selectedTravel = "";
     private SeatBox selectedSeat;
     private Location location;
@@ -130,8 +138,9 @@ public class MainFrame extends JFrame implements PropertyChangeListener{
     public void updateTravelsPerDate(GregorianCalendar date) {
         List<Travel> travels = null;
         try{
-            travels = salesDesk.searchTravelsPerDate(date);
-            northPanel.updateTravels(travels);
+            travels = travelsOfDay(date);
+            shownDate = date;
+            northPanel.updateTravels(travels, travels == null ? null : salesDesk.availability(date));
         } catch ( SocketTimeoutException to) {
             mainFrame.infoMessage(location.getLabel(location.NO_TRAVELS));
         } catch (Exception e){
@@ -142,6 +151,64 @@ public class MainFrame extends JFrame implements PropertyChangeListener{
     }
 
 
+    /**
+     * Requests again the free seats of the shown travels, on the event dispatch thread. The changes that
+     * arrive before the request is sent share it.
+     */
+    private void refreshFreeSeats() {
+        if ( ! freeSeatsRefreshPending.compareAndSet(false, true)) {
+            return;
+        }
+        SwingUtilities.invokeLater(() -> {
+            freeSeatsRefreshPending.set(false);
+            try {
+                Map<String, Integer> freeSeats = shownDate == null ? null : salesDesk.availability(shownDate);
+                if (freeSeats != null) {
+                    northPanel.updateFreeSeats(freeSeats);
+                }
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+
+    /**
+     * Returns the travels of a date. The travels of its whole week (monday to sunday) are loaded with a
+     * single request, so picking another day of the same week does not ask the server again.
+     * @param date GregorianCalendar
+     * @return List<Travel> or null if there are not any
+     * @throws Exception
+     */
+    private List<Travel> travelsOfDay(GregorianCalendar date) throws Exception {
+        GregorianCalendar weekStart = new GregorianCalendar(date.get(GregorianCalendar.YEAR),
+                date.get(GregorianCalendar.MONTH), date.get(GregorianCalendar.DAY_OF_MONTH));
+        weekStart.add(GregorianCalendar.DAY_OF_MONTH,
+                -((weekStart.get(GregorianCalendar.DAY_OF_WEEK) + 5) % 7)); //Back to monday
+
+        if (loadedWeekTravels == null || ! weekStart.equals(loadedWeek)) {
+            GregorianCalendar weekEnd = (GregorianCalendar) weekStart.clone();
+            weekEnd.add(GregorianCalendar.DAY_OF_MONTH, 6);
+            List<Travel> weekTravels = salesDesk.searchTravelsBetweenDates(weekStart, weekEnd);
+            if (weekTravels == null) {
+                return null;
+            }
+            loadedWeek = weekStart;
+            loadedWeekTravels = weekTravels;
+        }
+
+        List<Travel> travels = new ArrayList<>();
+        for (Travel travel : loadedWeekTravels) {
+            if (travel.getDate().get(GregorianCalendar.DAY_OF_MONTH) == date.get(GregorianCalendar.DAY_OF_MONTH)
+                    && travel.getDate().get(GregorianCalendar.MONTH) == date.get(GregorianCalendar.MONTH)
+                    && travel.getDate().get(GregorianCalendar.YEAR) == date.get(GregorianCalendar.YEAR)) {
+                travels.add(travel);
+            }
+        }
+        return travels.isEmpty() ? null : travels;
+    }
+
+
     /**
      * Sets the selected date.
      * @param date GregorianCalendar
@@ -244,7 +311,9 @@ public class MainFrame extends JFrame implements PropertyChangeListener{
      */
     public void setSelectedSeat(SeatBox newSeat) {
         if (selectedSeat != null || newSeat == null) {
-            selectedSeat.unselect();
+            if (selectedSeat != null) {
+                selectedSeat.unselect();
+            }
             southPanel.stateAssignDeallocateButtons(false);
         }
 
@@ -356,19 +425,53 @@ public class MainFrame extends JFrame implements PropertyChangeListener{
 
 
     /**
-     * Behaviour when a seat status has been changed on a travel
-     * @param id String
+     * Behaviour when a seat status has been changed on a travel. The change is applied on the shown seats;
+     * the whole travel is requested again only when some change has been missed. If the free seats of the
+     * travel are shown, they are requested again.
+     * @param seatChange SeatChange
      */
-    private void seatChangeFired(String id) {
+    private void seatChangeFired(SeatChange seatChange) {
+        if (northPanel.showsFreeSeats(seatChange.getTravelID())) {
+            refreshFreeSeats();
+        }
         try {
-            if (id.equals(selectedTravel))
-                updateBusMatrix(id);
-                setSelectedSeat(null);
+            if (seatChange.getTravelID().equals(selectedTravel)) {
+                if (! centralPanel.applySeatChange(seatChange)) {
+                    updateBusMatrix(seatChange.getTravelID());
+                    setSelectedSeat(null);
+                } else if (selectedSeat != null && selectedSeat.getSeatNumber() == seatChange.getSeat()) {
+                    setSelectedSeat(null);
+                }
+            }
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
 
+    /**
+     * Behaviour when the push connection is stablished again. Seat changes may have been missed meanwhile
+     * and, if the server was restarted, its seats versions start again lower than the shown one, so the
+     * shown travel and the free seats are requested again instead of waiting for the next change, and the
+     * loaded week is forgotten. They are requested on the event dispatch thread, once the push connection
+     * has acknowledged the server.
+     */
+    private void connectionRenewed() {
+        SwingUtilities.invokeLater(() -> {
+            loadedWeek = null;
+            loadedWeekTravels = null;
+            try {
+                if (selectedTravel != null && ! selectedTravel.isEmpty()) {
+                    updateBusMatrix(selectedTravel);
+                    setSelectedSeat(null);
+                }
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        });
+        refreshFreeSeats();
+    }
+
+
     /**
      * Cahnges the connection label when the client is connected or not.
      * @param status Boolean
@@ -386,12 +489,15 @@ public class MainFrame extends JFrame implements PropertyChangeListener{
     public void propertyChange(PropertyChangeEvent event) {
         switch(event.getPropertyName()){
             case SEAT_CHANGED_PROPERTY:
-                seatChangeFired((String) event.getNewValue());
+                seatChangeFired((SeatChange) event.getNewValue());
                 break;
 
             case CONNECTED_PROPERTY:
                 setConnectedLabel((boolean) event.getNewValue());
                 northPanel.updateConnectionIDLabel(salesDesk.getClientID(), salesDesk.getConnectionID());
+                if ((boolean) event.getNewValue()) {
+                    connectionRenewed();
+                }
                 break;
         }
     }
@@ -45,6 +45,7 @@ public class NorthPanel extends JPanel {
     private JLabel connectedIcon;
     private JPanel west;
     private JLabel clientConncetionID;
+    private volatile Map<String, Integer> freeSeats; //Free seats of the listed travels, by travel ID
 
 
 
@@ -77,6 +78,14 @@ public class NorthPanel extends JPanel {
         travelsLabel = new JLabel(location.getLabel(location.ROUTES) + COLON, SwingConstants.RIGHT);
         travelsComboBox = new JComboBox();
         travelsComboBox.setPreferredSize(new Dimension(400, 45));
+        travelsComboBox.setRenderer(new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(JList list, Object value, int index,
+                                                          boolean isSelected, boolean cellHasFocus) {
+                return super.getListCellRendererComponent(list, withFreeSeats((String) value), index,
+                        isSelected, cellHasFocus);
+            }
+        });
 
         clientConncetionID = new JLabel();
 
@@ -112,9 +121,11 @@ public class NorthPanel extends JPanel {
      * Enables or disables the buttons related to the travels depending on the received list (if it's empty the buttons
      * are disabled and vice versa).
      * @param travels Collection
+     * @param freeSeats Map<String, Integer> free seats by travel ID (null if unknown)
      */
-    public void updateTravels(List<Travel> travels){
+    public void updateTravels(List<Travel> travels, Map<String, Integer> freeSeats){
         String elementName;
+        this.freeSeats = freeSeats;
         travelsComboBox.removeAllItems();
 
         if(travels == null|| travels.isEmpty() ){
@@ -139,6 +150,43 @@ public class NorthPanel extends JPanel {
     }
 
 
+    /**
+     * Updates the free seats shown for the listed travels, keeping the selected one.
+     * @param freeSeats Map<String, Integer> free seats by travel ID
+     */
+    public void updateFreeSeats(Map<String, Integer> freeSeats) {
+        this.freeSeats = freeSeats;
+        travelsComboBox.repaint();
+    }
+
+
+    /**
+     * Checks if the free seats of a travel are shown.
+     * @param travelID String
+     * @return Boolean
+     */
+    public boolean showsFreeSeats(String travelID) {
+        Map<String, Integer> shown = freeSeats;
+        return shown != null && shown.containsKey(travelID);
+    }
+
+
+    /**
+     * Appends the free seats of the travel to a combo box element, if they are known.
+     * @param element String
+     * @return String
+     */
+    private String withFreeSeats(String element) {
+        Map<String, Integer> shown = freeSeats;
+        String travelID = element == null ? null : travelID(element);
+        if (shown == null || travelID == null || ! shown.containsKey(travelID)) {
+            return element;
+        }
+        return element + TEXT_SPACER + "(" + shown.get(travelID) + TEXT_SPACER +
+                location.getLabel(location.FREE_SEATS) + ")";
+    }
+
+
     /**
      * Sorts a list of travels by origin --> destiny --> hour --> minute
      * @param travels ArrayList
@@ -176,9 +224,18 @@ public class NorthPanel extends JPanel {
      * @return String
      */
     public String getSelectedTravel(){
-        String selectedTravel = (String) travelsComboBox.getSelectedItem();
+        return travelID((String) travelsComboBox.getSelectedItem());
+    }
+
+
+    /**
+     * Returns the the id from a combo box element.
+     * @param element String
+     * @return String
+     */
+    private String travelID(String element){
         Pattern pattern = Pattern.compile(idRegex);
-        Matcher matcher = pattern.matcher(selectedTravel);
+        Matcher matcher = pattern.matcher(element);
 
         if (matcher.find()) {
             return matcher.group(1);
@@ -46,11 +46,8 @@ public class SeatBox extends JButton {
         this.setText(String.valueOf(seatNumber));
         if(passenger != null) {
             setAssigned(passenger);
-            setToolTipText(passenger.getName() + TEXT_SPACER + passenger.getSurname() +
-                    ELEMENTS_SEPARATOR + passenger.getDni());
         } else {
             setDeallocated();
-            setToolTipText("");
         }
 
         this.addActionListener(new ActionListener() {
@@ -84,6 +81,8 @@ public class SeatBox extends JButton {
         passenger = newPassenger;
         inUse = true;
         this.setForeground(darkerRed);
+        setToolTipText(passenger.getName() + TEXT_SPACER + passenger.getSurname() +
+                ELEMENTS_SEPARATOR + passenger.getDni());
     }
 
 
@@ -94,6 +93,7 @@ public class SeatBox extends JButton {
         passenger = null;
         inUse = false;
         this.setForeground(darkerGreen);
+        setToolTipText("");
     }
 
 
@@ -0,0 +1,236 @@
+/*
+ * Type class Model.BenchmarkData. Generated data for the benchmarks, and the JVMs they measure on. The
+ * server reads its files from storage/data under the working directory, and the data it loads is shared by
+ * every sales desk of a JVM, so a benchmark generates its travels on a temporary directory and measures on
+ * a new JVM working there: the data of a server is never touched.
+ *
+ * The travels go between a few cities over three years, on 4x12 buses, and some seats of each one are
+ * booked by the generated passengers.
+ *
+ * The benchmarks and tests of the server are kept on the bench source root, out of Server.jar: they are
+ * compiled along with src and run from the server directory.
+ *
+ * Model.BenchmarkData.java
+ *
+ * @version 2.0
+ * @author Pablo Sanz Alguacil
+ */
+
+package Model;
+
+import Internationalization.Location;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Stream;
+
+class BenchmarkData {
+    static final int SEATS = 4 * 12;
+    private static final String DISTRIBUTION = "4x12";
+    private static final String[] CITIES = {"MADRID", "BARCELONA", "VALENCIA", "SEVILLA", "ZARAGOZA", "MALAGA",
+            "MURCIA", "PALMA", "BILBAO", "ALICANTE", "CORDOBA", "VALLADOLID", "VIGO", "GIJON", "GRANADA",
+            "SANTANDER"};
+    private static final String[] INFOS = {"Wifi-USB plugs-Standard plugs-Toilet-TV-Radio-Reclinable seats",
+            "Wifi-USB Plugs-Reclinable seats", "Toilet-Radio", "Wifi"};
+    private static final LocalDate FIRST_DAY = LocalDate.of(2030, 1, 1);
+    private static final int DAYS = 3 * 365;
+    private static final int DNI_DIGITS = 8;
+    private static final int LETTERS = 'Z' - 'A' + 1;
+    private static final String DATA_DIRECTORY = "storage/data";
+    private static final String PASSENGERS_FILE = "passengers.csv";
+    private static final String TRAVELS_FILE = "travels.csv";
+    private static final String TRAVELS_STATUS_FILE = "status.csv";
+    private static final String TEMPORARY_DIRECTORY_PREFIX = "benchmark";
+    private static final String ELEMENTS_SEPARATOR = ",";
+    private static final String DNI_SEAT_SEPARATOR = "-";
+    private static final String NAME = "Name";
+    private static final String SURNAME = "Surname";
+    private static final String JOURNAL_FSYNC_PARAMETER = "journal_fsync";
+    private static final String JOURNAL_FSYNC_NEVER = "never";
+    private static final String JOURNAL_COMPACTION_PARAMETER = "journal_compaction_records";
+    private static final String SNAPSHOT_PERIOD_PARAMETER = "snapshot_period";
+    private static final String SEAT_STORE_PARAMETER = "seat_store";
+    private static final String HEADLESS = "-Djava.awt.headless=true";
+    private static final String LANGUAGE = "en";
+    private static final String COUNTRY = "US";
+
+
+    /**
+     * Generates the travels, passengers and seats status files on a new temporary directory, with as many
+     * passengers as travels.
+     * @param travelsNumber Integer
+     * @param bookedSeats Integer booked seats of each travel
+     * @return Path of the directory, to work on
+     * @throws IOException
+     */
+    static Path generate(int travelsNumber, int bookedSeats) throws IOException {
+        return generate(travelsNumber, travelsNumber, bookedSeats);
+    }
+
+
+    /**
+     * Generates the travels, passengers and seats status files on a new temporary directory.
+     * @param travelsNumber Integer
+     * @param passengersNumber Integer (at least one if there are booked seats)
+     * @param bookedSeats Integer booked seats of each travel
+     * @return Path of the directory, to work on
+     * @throws IOException
+     */
+    static Path generate(int travelsNumber, int passengersNumber, int bookedSeats) throws IOException {
+        Path directory = Files.createTempDirectory(TEMPORARY_DIRECTORY_PREFIX);
+        Path data = Files.createDirectories(directory.resolve(DATA_DIRECTORY));
+
+        try (BufferedWriter passengers = Files.newBufferedWriter(data.resolve(PASSENGERS_FILE))) {
+            for (int i = 0; i < passengersNumber; i++) {
+                passengers.write(dni(i) + ELEMENTS_SEPARATOR + NAME + i % 100 + ELEMENTS_SEPARATOR + SURNAME
+                        + i % 1000);
+                passengers.newLine();
+            }
+        }
+
+        try (BufferedWriter travels = Files.newBufferedWriter(data.resolve(TRAVELS_FILE));
+             BufferedWriter status = Files.newBufferedWriter(data.resolve(TRAVELS_STATUS_FILE))) {
+            for (int i = 0; i < travelsNumber; i++) {
+                String id = travelID(i);
+                int origin = i % CITIES.length;
+                int destiny = (origin + 1 + (i / CITIES.length) % (CITIES.length - 1)) % CITIES.length;
+                LocalDate day = FIRST_DAY.plusDays(i % DAYS);
+                travels.write(String.join(ELEMENTS_SEPARATOR, id, CITIES[origin], CITIES[destiny],
+                        String.valueOf(day.getDayOfMonth()), String.valueOf(day.getMonthValue()),
+                        String.valueOf(day.getYear()), String.valueOf(i % 24), String.valueOf(i * 5 % 60),
+                        DISTRIBUTION, INFOS[i % INFOS.length]));
+                travels.newLine();
+
+                status.write(id);
+                for (int seat = 1; seat <= bookedSeats; seat++) {
+                    status.write(ELEMENTS_SEPARATOR + seat + DNI_SEAT_SEPARATOR
+                            + dni((int) (((long) i * bookedSeats + seat) % passengersNumber)));
+                }
+                status.newLine();
+            }
+        }
+        return directory;
+    }
+
+
+    /**
+     * Returns the ID of a generated travel.
+     * @param travel Integer from 0
+     * @return String
+     */
+    static String travelID(int travel) {
+        return String.valueOf(travel + 1);
+    }
+
+
+    /**
+     * Returns the DNI of a generated passenger.
+     * @param passenger Integer from 0
+     * @return String
+     */
+    static String dni(int passenger) {
+        String number = String.valueOf(passenger);
+        StringBuilder dni = new StringBuilder(DNI_DIGITS + 1);
+        for (int i = number.length(); i < DNI_DIGITS; i++) {
+            dni.append('0');
+        }
+        return dni.append(number).append((char) ('A' + passenger % LETTERS)).toString();
+    }
+
+
+    /**
+     * Returns the server configuration of the benchmarks: the journals are not forced to the disk and the
+     * snapshots are only taken on load, so the measures are not bound to the disk.
+     * @param seatStore String
+     * @return Properties
+     */
+    static Properties config(String seatStore) {
+        Properties config = new Properties();
+        config.setProperty(JOURNAL_FSYNC_PARAMETER, JOURNAL_FSYNC_NEVER);
+        config.setProperty(JOURNAL_COMPACTION_PARAMETER, String.valueOf(Long.MAX_VALUE));
+        config.setProperty(SNAPSHOT_PERIOD_PARAMETER, "0");
+        config.setProperty(SEAT_STORE_PARAMETER, seatStore);
+        return config;
+    }
+
+
+    /**
+     * Returns the location of the benchmarks.
+     * @return Location
+     */
+    static Location location() {
+        return new Location(LANGUAGE, COUNTRY);
+    }
+
+
+    /**
+     * Runs a main class on a new JVM working on a directory, with the class path of this one, and waits
+     * for it. Its output goes to this one.
+     * @param directory Path
+     * @param options List<String> of the JVM
+     * @param main Class<?>
+     * @param args String[] of the main class
+     * @return Integer exit code
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    static int run(Path directory, List<String> options, Class<?> main, String... args)
+            throws IOException, InterruptedException {
+
+        List<String> classPath = new ArrayList<>();
+        for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+            classPath.add(Paths.get(entry).toAbsolutePath().toString());
+        }
+
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(options);
+        command.add(HEADLESS);
+        command.add("-cp");
+        command.add(String.join(File.pathSeparator, classPath));
+        command.add(main.getName());
+        command.addAll(Arrays.asList(args));
+        return new ProcessBuilder(command).directory(directory.toFile()).inheritIO().start().waitFor();
+    }
+
+
+    /**
+     * Deletes the files written by the server on a generated directory (snapshot, journals, seats...), so
+     * the next run loads the generated files again.
+     * @param directory Path
+     * @throws IOException
+     */
+    static void clean(Path directory) throws IOException {
+        List<String> generated = Arrays.asList(PASSENGERS_FILE, TRAVELS_FILE, TRAVELS_STATUS_FILE);
+        try (Stream<Path> files = Files.list(directory.resolve(DATA_DIRECTORY))) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if ( ! generated.contains(file.getFileName().toString())) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Deletes a generated directory.
+     * @param directory Path
+     * @throws IOException
+     */
+    static void delete(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Type class Model.GcPauseBenchmark. Measures the garbage collection pauses of the server under load with
+ * the seats on each seat store: on the heap, out of it and on a mapped file. The seats out of the heap are
+ * never traced nor copied by the collector, so its pauses should not grow with them. The catalogue is
+ * generated (see Model.BenchmarkData) and loaded on a new JVM per store, with the same heap; several
+ * threads then book, cancel and read seats as in Model.ThroughputBenchmark while the pauses are recorded.
+ *
+ * Usage: java Model.GcPauseBenchmark [travels, 500000 by default] [threads, 4 by default]
+ *
+ * Model.GcPauseBenchmark.java
+ *
+ * @version 2.0
+ * @author Pablo Sanz Alguacil
+ */
+
+package Model;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+
+public class GcPauseBenchmark {
+    private static final int DEFAULT_TRAVELS = 500000;
+    private static final int DEFAULT_THREADS = 4;
+    private static final int BOOKED_SEATS = 12;
+    private static final String[] SEAT_STORES = {SeatStore.HEAP, SeatStore.OFF_HEAP, SeatStore.MAPPED};
+    private static final List<String> JVM_OPTIONS = Arrays.asList("-Xms1536m", "-Xmx1536m",
+            "-XX:MaxDirectMemorySize=1g");
+    private static final String COMPANY = "Company";
+    private static final String CONCURRENT = "Concurrent"; //Collectors running along the application
+    private static final long WARMUP_TIME = 5000; //milliseconds
+    private static final long MEASURE_TIME = 20000; //milliseconds
+    private static final String GENERATED = "Generated %d travels with %d booked seats each, %s%n";
+    private static final String HEADER = "%-8s %7s %9s %9s %9s %9s %14s %9s%n";
+    private static final String ROW = "%-8s %7d %9d %9d %9d %9d %,14d %9d%n";
+    private static final String[] COLUMNS = {"store", "pauses", "total ms", "median ms", "p99 ms", "max ms",
+            "operations/s", "heap MB"};
+
+
+    /**
+     * Main method. Generates the catalogue and measures it on a new JVM per seat store.
+     * @param args String[] travels and threads (optional)
+     */
+    public static void main(String[] args) throws Exception {
+        int travels = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_TRAVELS;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_THREADS;
+
+        Path directory = BenchmarkData.generate(travels, BOOKED_SEATS);
+        System.out.printf(GENERATED, travels, BOOKED_SEATS, String.join(" ", JVM_OPTIONS));
+        System.out.printf(HEADER, (Object[]) COLUMNS);
+        int failed = 0;
+        try {
+            for (String seatStore : SEAT_STORES) {
+                failed += BenchmarkData.run(directory, JVM_OPTIONS, Measure.class, String.valueOf(travels),
+                        seatStore, String.valueOf(threads));
+                BenchmarkData.clean(directory); //Every store loads the generated files
+            }
+        } finally {
+            BenchmarkData.delete(directory);
+        }
+        System.exit(failed);
+    }
+
+
+    /**
+     * Loads the generated data of the working directory on a seat store and measures its pauses.
+     */
+    public static class Measure {
+
+        /**
+         * Main method.
+         * @param args String[] travels, seat store and threads
+         */
+        public static void main(String[] args) throws Exception {
+            int travels = Integer.parseInt(args[0]);
+            String seatStore = args[1];
+            int threads = Integer.parseInt(args[2]);
+            SalesDesks salesDesks = new SalesDesks(BenchmarkData.location(), BenchmarkData.config(seatStore));
+            salesDesks.newDesk(COMPANY);
+            SalesDesk.awaitCompaction();
+
+            long measureStart = System.currentTimeMillis() + WARMUP_TIME;
+            long end = measureStart + MEASURE_TIME;
+            ConcurrentLinkedQueue<Long> pauses = new ConcurrentLinkedQueue<>();
+            for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+                ((NotificationEmitter) collector).addNotificationListener((notification, handback) -> {
+                    GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from(
+                            (CompositeData) notification.getUserData());
+                    long now = System.currentTimeMillis();
+                    if ( ! info.getGcName().contains(CONCURRENT) && now >= measureStart && now < end) {
+                        pauses.add(info.getGcInfo().getDuration());
+                    }
+                }, notification -> GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(
+                        notification.getType()), null);
+            }
+
+            AtomicLong operations = new AtomicLong();
+            Thread[] workers = new Thread[threads];
+            for (int i = 0; i < threads; i++) {
+                workers[i] = new Thread(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    long done = 0;
+                    long now;
+                    while ((now = System.currentTimeMillis()) < end) {
+                        ThroughputBenchmark.Measure.operate(salesDesks, COMPANY, travels, random);
+                        if (now >= measureStart) {
+                            done++;
+                        }
+                    }
+                    operations.addAndGet(done);
+                });
+                workers[i].start();
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+
+            long[] durations = pauses.stream().mapToLong(Long::longValue).sorted().toArray();
+            long total = Arrays.stream(durations).sum();
+            System.gc();
+            long heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed() >> 20;
+            System.out.printf(ROW, seatStore, durations.length, total, percentile(durations, 50),
+                    percentile(durations, 99), percentile(durations, 100), operations.get() * 1000 / MEASURE_TIME,
+                    heap);
+            System.exit(0);
+        }
+
+
+        /**
+         * Returns a percentile of sorted values.
+         * @param values long[] sorted
+         * @param percentile Integer
+         * @return Long 0 if there are no values
+         */
+        private static long percentile(long[] values, int percentile) {
+            if (values.length == 0) {
+                return 0;
+            }
+            return values[Math.min(values.length - 1, values.length * percentile / 100)];
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Type class Model.MemoryBenchmark. Measures the heap taken by the loaded catalogue: a travel keeps its
+ * departure as a long, its seats distribution as two shorts and its seats on the seat store, and the loaded
+ * travels share their places and bus info, so a travel without bookings takes little more than its ID and
+ * its seats. The catalogue is generated (see Model.BenchmarkData) without passengers nor bookings and
+ * loaded on a new JVM, which prints the heap used after a full collection and the top of its class
+ * histogram.
+ *
+ * Usage: java Model.MemoryBenchmark [travels, 1000000 by default] [histogram rows, 20 by default]
+ *
+ * Model.MemoryBenchmark.java
+ *
+ * @version 2.0
+ * @author Pablo Sanz Alguacil
+ */
+
+package Model;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.Collections;
+import javax.management.ObjectName;
+
+public class MemoryBenchmark {
+    private static final int DEFAULT_TRAVELS = 1000000;
+    private static final int DEFAULT_ROWS = 20;
+    private static final int PASSENGERS = 0;
+    private static final int BOOKED_SEATS = 0;
+    private static final String COMPANY = "Company";
+    private static final int COLLECTIONS = 3;
+    private static final String DIAGNOSTIC_COMMAND = "com.sun.management:type=DiagnosticCommand";
+    private static final String CLASS_HISTOGRAM = "gcClassHistogram";
+    private static final int HISTOGRAM_HEADER_LINES = 2; //Header and separator lines of the histogram
+    private static final String LINE_END = "\n";
+    private static final String HEAP_USED = "%d travels: %,d bytes of heap used, %,d bytes per travel%n";
+
+
+    /**
+     * Main method. Generates the catalogue and loads it on a new JVM.
+     * @param args String[] travels and histogram rows (optional)
+     */
+    public static void main(String[] args) throws Exception {
+        int travels = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_TRAVELS;
+        int rows = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_ROWS;
+
+        Path directory = BenchmarkData.generate(travels, PASSENGERS, BOOKED_SEATS);
+        int exitCode;
+        try {
+            exitCode = BenchmarkData.run(directory, Collections.emptyList(), Measure.class,
+                    String.valueOf(travels), String.valueOf(rows));
+        } finally {
+            BenchmarkData.delete(directory);
+        }
+        System.exit(exitCode);
+    }
+
+
+    /**
+     * Loads the generated data of the working directory and measures its heap.
+     */
+    public static class Measure {
+
+        /**
+         * Main method.
+         * @param args String[] travels and histogram rows
+         */
+        public static void main(String[] args) throws Exception {
+            int travels = Integer.parseInt(args[0]);
+            int rows = Integer.parseInt(args[1]);
+            SalesDesks salesDesks = new SalesDesks(BenchmarkData.location(), BenchmarkData.config(SeatStore.HEAP));
+            salesDesks.newDesk(COMPANY);
+            SalesDesk.awaitCompaction();
+
+            for (int i = 0; i < COLLECTIONS; i++) {
+                System.gc();
+            }
+            long used = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+            System.out.printf(HEAP_USED, travels, used, used / travels);
+
+            //The histogram collects the heap again, with the catalogue still reachable from the desks
+            String histogram = (String) ManagementFactory.getPlatformMBeanServer().invoke(
+                    new ObjectName(DIAGNOSTIC_COMMAND), CLASS_HISTOGRAM, new Object[] {null},
+                    new String[] {String[].class.getName()});
+            String[] lines = histogram.split(LINE_END);
+            int shown = Math.min(lines.length, rows + HISTOGRAM_HEADER_LINES);
+            for (int i = 0; i < shown; i++) {
+                System.out.println(lines[i]);
+            }
+            System.out.println(lines[lines.length - 1]); //Total
+            System.exit(salesDesks.existsDesk(COMPANY) ? 0 : 1);
+        }
+    }
+}
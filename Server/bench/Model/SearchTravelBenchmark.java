@@ -0,0 +1,107 @@
+/*
+ * Type class Model.SearchTravelBenchmark. Measures the latency of the travel lookups by ID (as done by
+ * every seat request) as the catalogue grows: the travels are held by ID on a hash map, so a lookup takes a
+ * few memory accesses however many travels there are, instead of a scan of them. It only grows as the
+ * catalogue outgrows the processor caches. Every catalogue is generated (see Model.BenchmarkData) and
+ * loaded on a new JVM, and looked up by random IDs in batches once its snapshot is written; the latency of
+ * a lookup is the time of its batch over its size.
+ *
+ * Usage: java Model.SearchTravelBenchmark [travels of each catalogue, 1000 10000 100000 1000000 by default]
+ *
+ * Model.SearchTravelBenchmark.java
+ *
+ * @version 2.0
+ * @author Pablo Sanz Alguacil
+ */
+
+package Model;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.ThreadLocalRandom;
+
+public class SearchTravelBenchmark {
+    private static final int[] DEFAULT_TRAVELS = {1000, 10000, 100000, 1000000};
+    private static final int BOOKED_SEATS = 0; //Only the lookups are measured
+    private static final String COMPANY = "Company";
+    private static final int IDS = 1 << 16; //Random IDs looked up, over and over
+    private static final int BATCH = 1000; //Lookups timed together
+    private static final int WARMUP_BATCHES = 2000;
+    private static final int BATCHES = 5000;
+    private static final String HEADER = "%10s %12s %12s %12s%n";
+    private static final String ROW = "%10d %12.1f %12.1f %12.1f%n";
+    private static final String[] COLUMNS = {"travels", "median ns", "p99 ns", "max ns"};
+    private static final String NOT_FOUND = "FAILED: %d lookups did not find their travel%n";
+
+
+    /**
+     * Main method. Generates every catalogue and looks it up on a new JVM.
+     * @param args String[] travels of each catalogue (optional)
+     */
+    public static void main(String[] args) throws Exception {
+        int[] catalogues = args.length > 0
+                ? Arrays.stream(args).mapToInt(Integer::parseInt).toArray() : DEFAULT_TRAVELS;
+
+        System.out.printf(HEADER, (Object[]) COLUMNS);
+        int failed = 0;
+        for (int travels : catalogues) {
+            Path directory = BenchmarkData.generate(travels, BOOKED_SEATS);
+            try {
+                failed += BenchmarkData.run(directory, Collections.emptyList(), Measure.class,
+                        String.valueOf(travels));
+            } finally {
+                BenchmarkData.delete(directory);
+            }
+        }
+        System.exit(failed);
+    }
+
+
+    /**
+     * Looks up the generated data of the working directory.
+     */
+    public static class Measure {
+
+        /**
+         * Main method.
+         * @param args String[] travels
+         */
+        public static void main(String[] args) throws InterruptedException {
+            int travels = Integer.parseInt(args[0]);
+            SalesDesks salesDesks = new SalesDesks(BenchmarkData.location(), BenchmarkData.config(SeatStore.HEAP));
+            salesDesks.newDesk(COMPANY);
+            SalesDesk.awaitCompaction();
+
+            String[] ids = new String[IDS];
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < IDS; i++) {
+                ids[i] = BenchmarkData.travelID(random.nextInt(travels));
+            }
+
+            long notFound = 0;
+            double[] latencies = new double[BATCHES];
+            int next = 0;
+            for (int batch = -WARMUP_BATCHES; batch < BATCHES; batch++) {
+                long start = System.nanoTime();
+                for (int i = 0; i < BATCH; i++) {
+                    if (salesDesks.searchTravel(COMPANY, ids[next]) == null) {
+                        notFound++;
+                    }
+                    next = (next + 1) & (IDS - 1);
+                }
+                if (batch >= 0) {
+                    latencies[batch] = (double) (System.nanoTime() - start) / BATCH;
+                }
+            }
+
+            Arrays.sort(latencies);
+            System.out.printf(ROW, travels, latencies[BATCHES / 2], latencies[BATCHES * 99 / 100],
+                    latencies[BATCHES - 1]);
+            if (notFound > 0) {
+                System.out.printf(NOT_FOUND, notFound);
+            }
+            System.exit(notFound > 0 ? 1 : 0);
+        }
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Type class Model.SeatStressTest. Stress test of the seat assignment without locks, on every seat store
+ * kept in memory. Many threads are released at once against the same seat, round after round, and only one
+ * of them may win it (and only one may free it); the winner must be the passenger sited on it and the free
+ * seats must count it once. Then compares the throughput of the seat changes with compare-and-set against
+ * the same changes under a monitor, as they were done before.
+ *
+ * Usage: java Model.SeatStressTest [threads, twice the cores by default] [rounds, 10000 by default]
+ * The exit code is the number of failed checks.
+ *
+ * Model.SeatStressTest.java
+ *
+ * @version 2.0
+ * @author Pablo Sanz Alguacil
+ */
+
+package Model;
+
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class SeatStressTest {
+    private static final int DEFAULT_ROUNDS = 10000;
+    private static final int SEAT = 1;
+    private static final String ONE_SEAT_TRAVEL = "STRESS,ORIGIN,DESTINY,1,1,2030,10,0,1x1,None";
+    private static final String FULL_TRAVEL = "THROUGHPUT,ORIGIN,DESTINY,1,1,2030,10,0,7x7,None";
+    private static final long THROUGHPUT_TIME = 2000; //milliseconds
+    private static final String STORES = "Seat stores: %s and %s, %d threads, %d rounds%n";
+    private static final String ROUND_FAILED = "FAILED %s round %d: %d winners to assign, %d to free, "
+            + "passenger %d sited, %d winning, %d free seats%n";
+    private static final String STRESS_PASSED = "Passed %s: one winner on each of %d rounds%n";
+    private static final String THROUGHPUT = "%s %s: %,d seat changes per second%n";
+    private static final String COUNT_FAILED = "FAILED %s %s: %d free seats counted, %d seats free%n";
+    private static final String CHECKS_FAILED = "%d checks failed%n";
+    private static final String COMPARE_AND_SET = "compare-and-set";
+    private static final String MONITOR = "monitor";
+
+
+    /**
+     * Main method.
+     * @param args String[] threads and rounds (optional)
+     */
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors() * 2;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_ROUNDS;
+        SeatStore heap = new HeapSeatStore();
+        SeatStore offHeap = new OffHeapSeatStore();
+        System.out.printf(STORES, SeatStore.HEAP, SeatStore.OFF_HEAP, threads, rounds);
+
+        int failed = 0;
+        failed += stress(SeatStore.HEAP, heap, threads, rounds);
+        failed += stress(SeatStore.OFF_HEAP, offHeap, threads, rounds);
+        failed += throughput(SeatStore.HEAP, heap, threads, false);
+        failed += throughput(SeatStore.HEAP, heap, threads, true);
+        failed += throughput(SeatStore.OFF_HEAP, offHeap, threads, false);
+        failed += throughput(SeatStore.OFF_HEAP, offHeap, threads, true);
+
+        if (failed > 0) {
+            System.out.printf(CHECKS_FAILED, failed);
+        }
+        System.exit(failed);
+    }
+
+
+    /**
+     * Releases all the threads at once against the same free seat, and then against the same occupied
+     * seat, on every round. Each thread assigns the seat to its own passenger.
+     * @param name String of the store
+     * @param seatStore SeatStore
+     * @param threads Integer
+     * @param rounds Integer
+     * @return Integer number of failed rounds
+     */
+    private static int stress(String name, SeatStore seatStore, int threads, int rounds)
+            throws InterruptedException {
+
+        Travel travel = new Travel(ONE_SEAT_TRAVEL, null);
+        travel.allocateSeats(seatStore);
+        int freeSeats = travel.getFreeSeats();
+        AtomicInteger assigned = new AtomicInteger();
+        AtomicInteger freed = new AtomicInteger();
+        AtomicInteger winner = new AtomicInteger();
+        int[] round = new int[1];
+        int[] sited = new int[2]; //Passenger and free seats once assigned
+        AtomicInteger failed = new AtomicInteger();
+
+        //The checks run as barrier actions, while every thread waits
+        CyclicBarrier start = new CyclicBarrier(threads);
+        CyclicBarrier assignedEnd = new CyclicBarrier(threads, () -> {
+            sited[0] = travel.whoIsSited(SEAT);
+            sited[1] = travel.getFreeSeats();
+        });
+        CyclicBarrier freedEnd = new CyclicBarrier(threads, () -> {
+            if (assigned.get() != 1 || freed.get() != 1 || sited[0] != winner.get()
+                    || sited[1] != freeSeats - 1 || travel.getFreeSeats() != freeSeats) {
+                System.out.printf(ROUND_FAILED, name, round[0], assigned.get(), freed.get(), sited[0],
+                        winner.get(), sited[1]);
+                failed.incrementAndGet();
+            }
+            assigned.set(0);
+            freed.set(0);
+            winner.set(PassengerTable.NONE);
+            round[0]++;
+        });
+
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            int passenger = i + 1; //Any handle but NONE
+            workers[i] = new Thread(() -> {
+                try {
+                    for (int j = 0; j < rounds; j++) {
+                        start.await();
+                        if (travel.assignSeat(SEAT, passenger)) {
+                            assigned.incrementAndGet();
+                            winner.set(passenger);
+                        }
+                        assignedEnd.await();
+                        if (travel.deallocateSeat(SEAT)) {
+                            freed.incrementAndGet();
+                        }
+                        freedEnd.await();
+                    }
+                } catch (InterruptedException | BrokenBarrierException e) {
+                    failed.incrementAndGet();
+                }
+            });
+            workers[i].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        if (failed.get() == 0) {
+            System.out.printf(STRESS_PASSED, name, rounds);
+        }
+        return failed.get();
+    }
+
+
+    /**
+     * Measures the seat changes per second of threads assigning and freeing random seats of the same
+     * travel, and checks the free seats counter against the seats afterwards.
+     * @param name String of the store
+     * @param seatStore SeatStore
+     * @param threads Integer
+     * @param monitor Boolean true to change the seats under a monitor, as they were changed before
+     * @return Integer 1 if the free seats do not match the seats, 0 otherwise
+     */
+    private static int throughput(String name, SeatStore seatStore, int threads, boolean monitor)
+            throws InterruptedException {
+
+        Travel travel = new Travel(FULL_TRAVEL, null);
+        travel.allocateSeats(seatStore);
+        int seatsNumber = travel.getSeatsNumber();
+        AtomicLong changes = new AtomicLong();
+        long end = System.currentTimeMillis() + THROUGHPUT_TIME;
+
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            int passenger = i + 1;
+            workers[i] = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long done = 0;
+                while (System.currentTimeMillis() < end) {
+                    int seat = random.nextInt(seatsNumber) + 1;
+                    if (monitor) {
+                        synchronized (travel) {
+                            done += change(travel, seat, passenger);
+                        }
+                    } else {
+                        done += change(travel, seat, passenger);
+                    }
+                }
+                changes.addAndGet(done);
+            });
+            workers[i].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        System.out.printf(THROUGHPUT, name, monitor ? MONITOR : COMPARE_AND_SET,
+                changes.get() * 1000 / THROUGHPUT_TIME);
+
+        int free = 0;
+        for (int seat = 1; seat <= seatsNumber; seat++) {
+            if (travel.isSeatFree(seat)) {
+                free++;
+            }
+        }
+        if (free != travel.getFreeSeats()) {
+            System.out.printf(COUNT_FAILED, name, monitor ? MONITOR : COMPARE_AND_SET, travel.getFreeSeats(), free);
+            return 1;
+        }
+        return 0;
+    }
+
+
+    /**
+     * Assigns a seat if it is free or frees it if it is occupied.
+     * @param travel Travel
+     * @param seat Integer
+     * @param passenger Integer passenger handle
+     * @return Integer 1 if the seat changed, 0 otherwise
+     */
+    private static int change(Travel travel, int seat, int passenger) {
+        boolean changed = travel.isSeatFree(seat) ? travel.assignSeat(seat, passenger) : travel.deallocateSeat(seat);
+        return changed ? 1 : 0;
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Type class Model.StartupBenchmark. Measures the startup of the server on generated data (see
+ * Model.BenchmarkData): how long the first sales desk takes to load the passengers, travels and seats
+ * status files, and how long the next one takes, which shares them. Every load runs on a new JVM and reads
+ * the status file, not a snapshot. Joining the seats to their travels by ID, the load time grows linearly
+ * with the travels, so the time per travel must not grow with the catalogue.
+ *
+ * Usage: java Model.StartupBenchmark [travels of each catalogue, 25000 50000 100000 by default]
+ *
+ * Model.StartupBenchmark.java
+ *
+ * @version 2.0
+ * @author Pablo Sanz Alguacil
+ */
+
+package Model;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+
+public class StartupBenchmark {
+    private static final int[] DEFAULT_TRAVELS = {25000, 50000, 100000};
+    private static final int BOOKED_SEATS = 12;
+    private static final int RUNS = 3; //Loads of each catalogue, each one on a new JVM
+    private static final String FIRST_COMPANY = "Company 1";
+    private static final String SECOND_COMPANY = "Company 2";
+    private static final String GENERATED = "Generated %d travels with %d booked seats each%n";
+    private static final String ROW = "%d travels: first desk %.1f ms (%.2f us per travel), next desk %.3f ms%n";
+
+
+    /**
+     * Main method. Generates every catalogue and loads it on new JVMs.
+     * @param args String[] travels of each catalogue (optional)
+     */
+    public static void main(String[] args) throws Exception {
+        int[] catalogues = args.length > 0
+                ? Arrays.stream(args).mapToInt(Integer::parseInt).toArray() : DEFAULT_TRAVELS;
+
+        for (int travels : catalogues) {
+            Path directory = BenchmarkData.generate(travels, BOOKED_SEATS);
+            System.out.printf(GENERATED, travels, BOOKED_SEATS);
+            try {
+                for (int run = 0; run < RUNS; run++) {
+                    int exitCode = BenchmarkData.run(directory, Collections.emptyList(), Measure.class,
+                            String.valueOf(travels));
+                    BenchmarkData.clean(directory);
+                    if (exitCode != 0) {
+                        System.exit(exitCode);
+                    }
+                }
+            } finally {
+                BenchmarkData.delete(directory);
+            }
+        }
+    }
+
+
+    /**
+     * Loads the generated data of the working directory.
+     */
+    public static class Measure {
+
+        /**
+         * Main method.
+         * @param args String[] travels
+         */
+        public static void main(String[] args) {
+            int travels = Integer.parseInt(args[0]);
+            SalesDesks salesDesks = new SalesDesks(BenchmarkData.location(), BenchmarkData.config(SeatStore.HEAP));
+
+            long start = System.nanoTime();
+            salesDesks.newDesk(FIRST_COMPANY);
+            long first = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            salesDesks.newDesk(SECOND_COMPANY);
+            long next = System.nanoTime() - start;
+
+            System.out.printf(ROW, travels, first / 1e6, first / 1e3 / travels, next / 1e6);
+            System.exit(0); //Without waiting for the snapshot taken after the load
+        }
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Type class Model.ThroughputBenchmark. Measures how the operations of the sales desks scale with the
+ * threads: reads never block and a seat change only locks its passenger and travel, so the operations per
+ * second should grow with the cores. Each thread works for one of several companies, mostly reading
+ * (travels, seats and passengers of seats) and sometimes booking or cancelling a random seat. It runs on
+ * generated data (see Model.BenchmarkData), once per number of threads: 1, 2, 4... up to the maximum.
+ *
+ * Usage: java Model.ThroughputBenchmark [travels, 10000 by default] [maximum threads, twice the cores by
+ * default]
+ *
+ * Model.ThroughputBenchmark.java
+ *
+ * @version 2.0
+ * @author Pablo Sanz Alguacil
+ */
+
+package Model;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ThroughputBenchmark {
+    private static final int DEFAULT_TRAVELS = 10000;
+    private static final int BOOKED_SEATS = 12;
+    private static final int COMPANIES = 4;
+    private static final String COMPANY = "Company ";
+    private static final int WRITES = 10; //Percentage of bookings, and of cancellations
+    private static final long WARMUP_TIME = 1000; //milliseconds, for each number of threads
+    private static final long MEASURE_TIME = 3000; //milliseconds, for each number of threads
+    private static final String GENERATED = "Generated %d travels with %d booked seats each%n";
+    private static final String HEADER = "%8s %16s %8s%n";
+    private static final String ROW = "%8d %,16d %8.2f%n";
+    private static final String[] COLUMNS = {"threads", "operations/s", "speedup"};
+
+
+    /**
+     * Main method. Generates the data and measures on a new JVM.
+     * @param args String[] travels and maximum threads (optional)
+     */
+    public static void main(String[] args) throws Exception {
+        int travels = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_TRAVELS;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors() * 2;
+
+        Path directory = BenchmarkData.generate(travels, BOOKED_SEATS);
+        System.out.printf(GENERATED, travels, BOOKED_SEATS);
+        int exitCode;
+        try {
+            exitCode = BenchmarkData.run(directory, Collections.emptyList(), Measure.class,
+                    String.valueOf(travels), String.valueOf(threads));
+        } finally {
+            BenchmarkData.delete(directory);
+        }
+        System.exit(exitCode);
+    }
+
+
+    /**
+     * Measures on the generated data of the working directory.
+     */
+    public static class Measure {
+
+        /**
+         * Main method.
+         * @param args String[] travels and maximum threads
+         */
+        public static void main(String[] args) throws Exception {
+            int travels = Integer.parseInt(args[0]);
+            int maxThreads = Integer.parseInt(args[1]);
+            SalesDesks salesDesks = new SalesDesks(BenchmarkData.location(), BenchmarkData.config(SeatStore.HEAP));
+            for (int company = 0; company < COMPANIES; company++) {
+                salesDesks.newDesk(COMPANY + company);
+            }
+            SalesDesk.awaitCompaction();
+
+            System.out.printf(HEADER, (Object[]) COLUMNS);
+            long single = 0;
+            for (int threads = 1; threads <= maxThreads; threads = threads < maxThreads
+                    ? Math.min(threads * 2, maxThreads) : threads + 1) {
+                long operations = measure(salesDesks, travels, threads);
+                if (threads == 1) {
+                    single = operations;
+                }
+                System.out.printf(ROW, threads, operations, (double) operations / single);
+            }
+            System.exit(0);
+        }
+
+
+        /**
+         * Runs the operations on several threads for a while.
+         * @param salesDesks SalesDesks
+         * @param travels Integer
+         * @param threads Integer
+         * @return Long operations per second, once warmed up
+         * @throws InterruptedException
+         */
+        private static long measure(SalesDesks salesDesks, int travels, int threads) throws InterruptedException {
+            long measureStart = System.currentTimeMillis() + WARMUP_TIME;
+            long end = measureStart + MEASURE_TIME;
+            AtomicLong operations = new AtomicLong();
+
+            Thread[] workers = new Thread[threads];
+            for (int i = 0; i < threads; i++) {
+                String companyID = COMPANY + i % COMPANIES;
+                workers[i] = new Thread(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    long done = 0;
+                    long now;
+                    while ((now = System.currentTimeMillis()) < end) {
+                        operate(salesDesks, companyID, travels, random);
+                        if (now >= measureStart) {
+                            done++;
+                        }
+                    }
+                    operations.addAndGet(done);
+                });
+                workers[i].start();
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            return operations.get() * 1000 / MEASURE_TIME;
+        }
+
+
+        /**
+         * Runs a random operation on a random travel: a booking or a cancellation on WRITES percent of
+         * them each, and reads on the rest.
+         * @param salesDesks SalesDesks
+         * @param companyID String
+         * @param travels Integer
+         * @param random ThreadLocalRandom
+         */
+        static void operate(SalesDesks salesDesks, String companyID, int travels,
+                            ThreadLocalRandom random) {
+
+            Travel travel = salesDesks.searchTravel(companyID, BenchmarkData.travelID(random.nextInt(travels)));
+            int seat = random.nextInt(BenchmarkData.SEATS) + 1;
+            int operation = random.nextInt(100);
+
+            if (operation < WRITES) {
+                int passenger = random.nextInt(travels);
+                salesDesks.assign(companyID, travel, new Passenger(BenchmarkData.dni(passenger), null, null), seat);
+            } else if (operation < 2 * WRITES) {
+                salesDesks.deallocate(companyID, travel, seat);
+            } else {
+                Passenger passenger = salesDesks.whoIsSitting(companyID, travel, seat);
+                if (passenger != null) {
+                    salesDesks.searchPassenger(companyID, passenger.getDni());
+                }
+            }
+        }
+    }
+}
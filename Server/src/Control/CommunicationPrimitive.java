@@ -10,21 +10,28 @@ import java.util.regex.Pattern;
  *
  */
 public enum CommunicationPrimitive {
-    CONNECT_PUSH("connect"),
-    DISCONNECT_PUSH("disconnect"),
-    NEW_CONNECTION_ID("new_connection_id"),
-    TEST("test"),
-    SEARCH_TRAVEL("search_travel"),
-    WHO_SITTING("who_is_sitting"),
-    SEARCH_TRAVELS_PER_DATE("search_travels_per_date"),
-    IS_SEAT_FREE("is_seat_free"),
-    ASSIGN("assign"),
-    DEALLOCATE("deallocate"),
-    END("end"),
-    OK("ok"),
-    NOK("nok");
+    CONNECT_PUSH("connect", 1),
+    DISCONNECT_PUSH("disconnect", 1),
+    NEW_CONNECTION_ID("new_connection_id", 1),
+    TEST("test", 0),
+    SEARCH_TRAVEL("search_travel", 2),
+    WHO_SITTING("who_is_sitting", 3),
+    SEAT_MAP("seat_map", 2),
+    SEARCH_TRAVELS_PER_DATE("search_travels_per_date", 4),
+    SEARCH_TRAVELS_BETWEEN_DATES("search_travels_between_dates", 7),
+    SEARCH_ROUTE("search_route", 9),
+    PASSENGER_BOOKINGS("passenger_bookings", 2),
+    AVAILABILITY("availability", 4),
+    IS_SEAT_FREE("is_seat_free", 3),
+    ASSIGN("assign", 4),
+    DEALLOCATE("deallocate", 3),
+    MULTIPLEX("multiplex", 0),
+    END("end", 0),
+    OK("ok", 0),
+    NOK("nok", 0);
 
     private String simbol;
+    private int parametersNumber;
     private static final Pattern regularExpression =
             Pattern.compile(CONNECT_PUSH.toString() + "|" +
                     DISCONNECT_PUSH.toString() + "|" +
@@ -32,10 +39,16 @@ public enum CommunicationPrimitive {
                     TEST.toString() + "|" +
                     SEARCH_TRAVEL.toString() + "|" +
                     WHO_SITTING.toString() + "|" +
+                    SEAT_MAP.toString() + "|" +
                     SEARCH_TRAVELS_PER_DATE.toString() + "|" +
+                    SEARCH_TRAVELS_BETWEEN_DATES.toString() + "|" +
+                    SEARCH_ROUTE.toString() + "|" +
+                    PASSENGER_BOOKINGS.toString() + "|" +
+                    AVAILABILITY.toString() + "|" +
                     IS_SEAT_FREE.toString() + "|" +
                     ASSIGN.toString() + "|" +
                     DEALLOCATE.toString() + "|" +
+                    MULTIPLEX.toString() + "|" +
                     END.toString() + "|" +
                     OK.toString() + "|" +
                     NOK.toString());
@@ -44,8 +57,17 @@ public enum CommunicationPrimitive {
      *  constructor method.
      *
      */
-    CommunicationPrimitive(String simbol) {
+    CommunicationPrimitive(String simbol, int parametersNumber) {
         this.simbol = simbol;
+        this.parametersNumber = parametersNumber;
+    }
+
+    /**
+     *  Returns the number of parameter lines that follow the primitive on a request.
+     *
+     */
+    public int getParametersNumber() {
+        return parametersNumber;
     }
 
     /**
@@ -74,9 +96,24 @@ public enum CommunicationPrimitive {
         else if (token.equals(WHO_SITTING.toString())){
             return WHO_SITTING;
         }
+        else if (token.equals(SEAT_MAP.toString())) {
+            return SEAT_MAP;
+        }
         else if (token.equals(SEARCH_TRAVELS_PER_DATE.toString())) {
             return SEARCH_TRAVELS_PER_DATE;
         }
+        else if (token.equals(SEARCH_TRAVELS_BETWEEN_DATES.toString())) {
+            return SEARCH_TRAVELS_BETWEEN_DATES;
+        }
+        else if (token.equals(SEARCH_ROUTE.toString())) {
+            return SEARCH_ROUTE;
+        }
+        else if (token.equals(PASSENGER_BOOKINGS.toString())) {
+            return PASSENGER_BOOKINGS;
+        }
+        else if (token.equals(AVAILABILITY.toString())) {
+            return AVAILABILITY;
+        }
         else if (token.equals(IS_SEAT_FREE.toString())){
             return IS_SEAT_FREE;
         }
@@ -86,6 +123,9 @@ public enum CommunicationPrimitive {
         else if (token.equals(DEALLOCATE.toString())) {
             return DEALLOCATE;
         }
+        else if (token.equals(MULTIPLEX.toString())) {
+            return MULTIPLEX;
+        }
         else if (token.equals(END.toString())) {
             return END;
         }
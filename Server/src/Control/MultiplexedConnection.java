@@ -0,0 +1,181 @@
+/*
+ * Persistent connection of a sales desk. Each request and response travels on a frame with a
+ * correlation ID, so several requests can be in flight on the same connection.
+ *
+ * Frame: "<correlationID> <linesNumber>" header line followed by linesNumber lines. The first line
+ * of a request is its CommunicationPrimitive and the following lines its parameters, as on a
+ * connection per request.
+ *
+ * Control.MultiplexedConnection.java
+ *
+ * @version 2.0
+ * @author Pablo Sanz Alguacil
+ */
+
+package Control;
+
+import Internationalization.Location;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+
+class MultiplexedConnection implements Runnable {
+    private static final String HEADER_SEPARATOR = " ";
+    private static final String LINE_SEPARATOR = "\n";
+    private static final String FRAME_ERROR = "Malformed frame on multiplexed connection";
+
+    private OfficesServer officesServer;
+    private Socket socket;
+    private BufferedReader influx;
+    private PrintWriter outflux;
+    private Location location;
+    private ReentrantLock lock;
+
+
+    /**
+     * Header of a frame.
+     */
+    static class Header {
+        private String correlationID;
+        private int linesNumber;
+
+        /**
+         * Constructor method. Parses a header line.
+         * @param line String
+         * @throws IOException
+         */
+        Header(String line) throws IOException {
+            String[] elements = line.trim().split(HEADER_SEPARATOR);
+            try {
+                correlationID = elements[0];
+                linesNumber = Integer.parseInt(elements[1]);
+            } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+                throw new IOException(FRAME_ERROR + ": " + line);
+            }
+        }
+
+        /**
+         * Returns the correlation ID.
+         * @return String
+         */
+        String getCorrelationID() {
+            return correlationID;
+        }
+
+        /**
+         * Returns the number of lines of the frame.
+         * @return Integer
+         */
+        int getLinesNumber() {
+            return linesNumber;
+        }
+    }
+
+
+    /**
+     * Constructor method.
+     * @param officesServer OfficesServer
+     * @param socket Socket
+     * @param influx BufferedReader
+     * @param outflux PrintWriter
+     * @param location Location
+     */
+    MultiplexedConnection(OfficesServer officesServer, Socket socket, BufferedReader influx, PrintWriter outflux,
+                          Location location) {
+        this.officesServer = officesServer;
+        this.socket = socket;
+        this.influx = influx;
+        this.outflux = outflux;
+        this.location = location;
+        lock = new ReentrantLock();
+    }
+
+
+    /**
+     * Builds a response frame.
+     * @param correlationID String
+     * @param response String
+     * @return String
+     */
+    static String newFrame(String correlationID, String response) {
+        List<String> lines = new ArrayList<>();
+        new BufferedReader(new StringReader(response)).lines().forEach(lines::add);
+
+        StringBuilder frame = new StringBuilder();
+        frame.append(correlationID).append(HEADER_SEPARATOR).append(lines.size()).append(LINE_SEPARATOR);
+        for (String line : lines) {
+            frame.append(line).append(LINE_SEPARATOR);
+        }
+        return frame.toString();
+    }
+
+
+    /**
+     * Builds a reader with the lines of a request frame, as if they were read from a socket.
+     * @param lines List<String>
+     * @return BufferedReader
+     */
+    static BufferedReader newRequestReader(List<String> lines) {
+        return new BufferedReader(new StringReader(String.join(LINE_SEPARATOR, lines) + LINE_SEPARATOR));
+    }
+
+
+    /**
+     * Writes a response frame.
+     * @param correlationID String
+     * @param response String
+     */
+    private void respond(String correlationID, String response) {
+        lock.lock();
+        try {
+            outflux.print(newFrame(correlationID, response));
+            outflux.flush();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Reads request frames until the sales desk closes the connection. Every request is processed on
+     * the server executor and answered as soon as it finishes, whatever the order of arrival.
+     */
+    @Override
+    public void run() {
+        try {
+            String line;
+            while ((line = influx.readLine()) != null) {
+                Header header = new Header(line);
+                List<String> lines = new ArrayList<>();
+
+                for (int i = 0; i < header.getLinesNumber(); i++) {
+                    line = influx.readLine();
+                    if (line == null) {
+                        throw new IOException(FRAME_ERROR);
+                    }
+                    lines.add(line);
+                }
+
+                officesServer.execute(() -> respond(header.getCorrelationID(),
+                        OfficeServer.processRequest(officesServer, newRequestReader(lines), location)));
+            }
+        } catch (IOException e) {
+            System.out.println(location.getLabel(location.CONNECTION_ERROR_SALESDESK) + ": " + e.toString());
+        } finally {
+            try {
+                influx.close();
+                outflux.close();
+                socket.close();
+            } catch (IOException e) {
+                // Connection has been already closed
+            }
+        }
+    }
+}
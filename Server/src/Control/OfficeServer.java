@@ -9,6 +9,7 @@
 
 package Control;
 
+import Model.Booking;
 import Model.Passenger;
 import Model.SalesDesk;
 import Model.Travel;
@@ -18,13 +19,14 @@ import java.io.*;
 import java.net.Socket;
 import java.util.*;
 import java.util.List;
-import java.util.concurrent.CountDownLatch;
 import static Control.OfficesServer.WAITTIME_CLIENT;
 
 
 public class OfficeServer implements Runnable {
 
     public static String DESK_CONNECTION_ERROR = "Desk connection closed";
+    private static final String DNI_SEAT_SEPARATOR = "-";
+    private static final String ELEMENTS_SEPARATOR = ",";
     private Location location;
     private OfficesServer officesServer;
     private Socket socket;
@@ -37,13 +39,29 @@ public class OfficeServer implements Runnable {
      * Constructor method.
      */
     public OfficeServer(OfficesServer officesServer, Socket socket, Location location) throws IOException {
+        this(officesServer, socket,
+                new BufferedReader(new InputStreamReader(socket.getInputStream())),
+                new PrintWriter(new BufferedWriter(new OutputStreamWriter(socket.getOutputStream())), true),
+                location);
+    }
+
+
+    /**
+     * Constructor method for requests already read by another component (i.e. the NIO server).
+     * The socket can be null if the request does not need a push connection.
+     * @param officesServer OfficesServer
+     * @param socket Socket
+     * @param influx BufferedReader
+     * @param outflux PrintWriter
+     * @param location Location
+     */
+    OfficeServer(OfficesServer officesServer, Socket socket, BufferedReader influx, PrintWriter outflux,
+                 Location location) {
         this.officesServer = officesServer;
         this.socket = socket;
+        this.influx = influx;
+        this.outflux = outflux;
         this.location = location;
-
-        influx = new BufferedReader(new InputStreamReader(socket.getInputStream()));
-        outflux = new PrintWriter(new BufferedWriter(new OutputStreamWriter(
-                socket.getOutputStream())), true);
     }
 
 
@@ -54,21 +72,23 @@ public class OfficeServer implements Runnable {
     private void endConnection() throws IOException {
         influx.close();
         outflux.close();
-        socket.close();
+        if (socket != null) {
+            socket.close();
+        }
     }
 
 
     /**
-     * Connects a sales desk by push.
+     * Connects a sales desk by push. The connection is handed over to the push connections registry,
+     * so this thread is released as soon as the sales desk has its connection ID.
      * @throws IOException
-     * @throws InterruptedException
      */
-    private void pushConnectionOffice() throws IOException, InterruptedException {
+    private void pushConnectionOffice() throws IOException {
         String companyID = readCompanyID();
-        CountDownLatch connectionClose = new CountDownLatch(1);
         String connectionID = officesServer.createConnectionID();
+        officesServer.newDesk(companyID); // Ready before the sales desk knows it is connected
         SalesDeskPushConnection salesDeskPushConnection = new SalesDeskPushConnection(connectionID,
-                companyID, socket, connectionClose);
+                companyID, socket);
         CommunicationPrimitive response = salesDeskPushConnection.sendRequest(
                 CommunicationPrimitive.NEW_CONNECTION_ID,
                 WAITTIME_CLIENT,
@@ -76,7 +96,6 @@ public class OfficeServer implements Runnable {
 
         if (response.equals(CommunicationPrimitive.OK)) {
             officesServer.newPushConnection(salesDeskPushConnection);
-            connectionClose.await();
 
         } else {
             salesDeskPushConnection.endConnection();
@@ -238,18 +257,42 @@ public class OfficeServer implements Runnable {
     }
 
 
+    /**
+     * Gets all the occupied seats of a travel with their passengers: the travel seats version and then
+     * one "seat-passenger" per line. The version is read before the seats, so a change made meanwhile
+     * is notified again with a newer version.
+     * @throws IOException
+     */
+    private void seatMap() throws IOException {
+        String companyID = readCompanyID();
+        String travelID = influx.readLine();
+
+        if (companyID != null && travelID != null) {
+            outflux.println(CommunicationPrimitive.SEAT_MAP);
+            Travel travel = officesServer.searchTravel(companyID, travelID);
+            Map<Integer, Passenger> seatMap = officesServer.seatMap(companyID, travelID);
+            if (travel != null && seatMap != null) {
+                outflux.println(travel.getVersion());
+                for (Map.Entry<Integer, Passenger> seat : seatMap.entrySet()) {
+                    outflux.println(seat.getKey() + DNI_SEAT_SEPARATOR + seat.getValue().toString());
+                }
+            }
+        } else {
+            outflux.println(CommunicationPrimitive.NOK.toString());
+        }
+        endConnection();
+    }
+
+
     /**
      * Searches travels for a date.
      * @throws IOException
      */
     private void searchTravelsPerDate() throws IOException {
         String companyID = readCompanyID();
-        int year = Integer.parseInt(influx.readLine());
-        int month = Integer.parseInt(influx.readLine());
-        int day = Integer.parseInt(influx.readLine());
+        GregorianCalendar date = readDate();
 
         if (companyID != null) {
-            GregorianCalendar date = new GregorianCalendar(year, month, day);
             outflux.println(CommunicationPrimitive.SEARCH_TRAVELS_PER_DATE);
             List<Travel> travels = officesServer.searchTravelsPerDate(companyID, date);
             if (companyID != null && date != null && travels != null && ! travels.isEmpty()) {
@@ -264,6 +307,161 @@ public class OfficeServer implements Runnable {
     }
 
 
+    /**
+     * Searches travels between two dates, both included.
+     * @throws IOException
+     */
+    private void searchTravelsBetweenDates() throws IOException {
+        String companyID = readCompanyID();
+        GregorianCalendar from = readDate();
+        GregorianCalendar to = readDate();
+
+        if (companyID != null) {
+            outflux.println(CommunicationPrimitive.SEARCH_TRAVELS_BETWEEN_DATES);
+            List<Travel> travels = officesServer.searchTravelsBetweenDates(companyID, from, to);
+            if (travels != null) {
+                for (Travel travel : travels) {
+                    outflux.println(travel.toString());
+                }
+            }
+        } else {
+            outflux.println(CommunicationPrimitive.NOK.toString());
+        }
+        endConnection();
+    }
+
+
+    /**
+     * Gets the free seats of every travel on a date: one "travelID,free seats,seats" per line, sorted by
+     * date. The free seats are counted on each travel, so no seat is read.
+     * @throws IOException
+     */
+    private void availability() throws IOException {
+        String companyID = readCompanyID();
+        GregorianCalendar date = readDate();
+
+        if (companyID != null) {
+            outflux.println(CommunicationPrimitive.AVAILABILITY);
+            List<Travel> travels = officesServer.searchTravelsPerDate(companyID, date);
+            if (travels != null) {
+                for (Travel travel : travels) {
+                    outflux.println(travel.getId() + ELEMENTS_SEPARATOR + travel.getFreeSeats()
+                            + ELEMENTS_SEPARATOR + travel.getSeatsNumber());
+                }
+            }
+        } else {
+            outflux.println(CommunicationPrimitive.NOK.toString());
+        }
+        endConnection();
+    }
+
+
+    /**
+     * Gets the bookings of a passenger: one "seat-travel" per line, sorted by travel date and seat.
+     * @throws IOException
+     */
+    private void passengerBookings() throws IOException {
+        String companyID = readCompanyID();
+        String dni = influx.readLine();
+
+        if (companyID != null && dni != null) {
+            outflux.println(CommunicationPrimitive.PASSENGER_BOOKINGS);
+            List<Booking> bookings = officesServer.passengerBookings(companyID, dni);
+            if (bookings != null) {
+                for (Booking booking : bookings) {
+                    Travel travel = officesServer.searchTravel(companyID, booking.getTravelID());
+                    outflux.println(booking.getSeat() + DNI_SEAT_SEPARATOR + travel.toString());
+                }
+            }
+        } else {
+            outflux.println(CommunicationPrimitive.NOK.toString());
+        }
+        endConnection();
+    }
+
+
+    /**
+     * Searches the travels of a route, optionally between two dates, sorted by departure.
+     * @throws IOException
+     */
+    private void searchRoute() throws IOException {
+        String companyID = readCompanyID();
+        String origin = influx.readLine();
+        String destiny = influx.readLine();
+        GregorianCalendar from = readOptionalDate();
+        GregorianCalendar to = readOptionalDate();
+
+        if (companyID != null && origin != null && destiny != null) {
+            outflux.println(CommunicationPrimitive.SEARCH_ROUTE);
+            List<Travel> travels = officesServer.searchRoute(companyID, origin, destiny, from, to);
+            if (travels != null) {
+                for (Travel travel : travels) {
+                    outflux.println(travel.toString());
+                }
+            }
+        } else {
+            outflux.println(CommunicationPrimitive.NOK.toString());
+        }
+        endConnection();
+    }
+
+
+    /**
+     * Reads a date sent as year, month and day lines, which are empty when there is no date.
+     * @return GregorianCalendar or null
+     * @throws IOException
+     */
+    private GregorianCalendar readOptionalDate() throws IOException {
+        String year = influx.readLine();
+        String month = influx.readLine();
+        String day = influx.readLine();
+        if (year == null || year.isEmpty()) {
+            return null;
+        }
+        return new GregorianCalendar(Integer.parseInt(year), Integer.parseInt(month), Integer.parseInt(day));
+    }
+
+
+    /**
+     * Reads a date sent as year, month and day lines.
+     * @return GregorianCalendar
+     * @throws IOException
+     */
+    private GregorianCalendar readDate() throws IOException {
+        int year = Integer.parseInt(influx.readLine());
+        int month = Integer.parseInt(influx.readLine());
+        int day = Integer.parseInt(influx.readLine());
+        return new GregorianCalendar(year, month, day);
+    }
+
+
+    /**
+     * Starts a persistent connection. The connection is read on its own session thread, so it does
+     * not keep a request thread busy.
+     */
+    private void multiplexedConnection() {
+        officesServer.startSession(new MultiplexedConnection(officesServer, socket, influx, outflux, location));
+    }
+
+
+    /**
+     * Processes a request already read and returns the response.
+     * @param officesServer OfficesServer
+     * @param request BufferedReader
+     * @param location Location
+     * @return String
+     */
+    static String processRequest(OfficesServer officesServer, BufferedReader request, Location location) {
+        StringWriter response = new StringWriter();
+        try {
+            new OfficeServer(officesServer, null, request, new PrintWriter(response, true), location).run();
+        } catch (RuntimeException e) {
+            System.out.println(location.getLabel(location.ERROR_READING_INPUT) + " " + e.toString());
+        }
+        return response.toString();
+    }
+
+
     /**
      * Manages SalesDesk request.
      */
@@ -298,14 +496,36 @@ public class OfficeServer implements Runnable {
                     whoIsSiting();
                     break;
 
+                case SEAT_MAP:
+                    seatMap();
+                    break;
+
                 case SEARCH_TRAVELS_PER_DATE:
                     searchTravelsPerDate();
                     break;
+
+                case SEARCH_TRAVELS_BETWEEN_DATES:
+                    searchTravelsBetweenDates();
+                    break;
+
+                case SEARCH_ROUTE:
+                    searchRoute();
+                    break;
+
+                case PASSENGER_BOOKINGS:
+                    passengerBookings();
+                    break;
+
+                case AVAILABILITY:
+                    availability();
+                    break;
+
+                case MULTIPLEX:
+                    multiplexedConnection();
+                    break;
             }
         } catch (IOException e) {
             System.out.println(location.getLabel(location.CONNECTION_ERROR_SALESDESK) + ": " + e.toString());
-        } catch (InterruptedException e) {
-            System.out.println(location.getLabel(location.CONNECTION_ERROR_SALESDESK) + ": " + e.toString());
         }
     }
 }
@@ -0,0 +1,372 @@
+/*
+ * Non-blocking server. A single selector thread accepts the sales desks connections and decodes the
+ * requests; complete requests are dispatched to a worker pool. Persistent (multiplexed) connections are
+ * served by the same selector thread.
+ *
+ * Control.OfficesNioServer.java
+ *
+ * @version 2.0
+ * @author Pablo Sanz Alguacil
+ */
+
+package Control;
+
+import Internationalization.Location;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.Scanner;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+
+
+class OfficesNioServer {
+    private static final int BUFFER_SIZE = 8 * 1024;
+    private static final byte LINE_END = '\n';
+    private static final byte CARRIAGE_RETURN = '\r';
+
+    private OfficesServer officesServer;
+    private ExecutorService poolThreads;
+    private Location location;
+    private int serverPort;
+    private Selector selector;
+    private Queue<Connection> pendingResponses;
+    private Queue<Connection> pendingPushConnections;
+    private Charset charset;
+
+
+    /**
+     * Request state of a connection. Lines are decoded as they arrive until the request is complete.
+     * A multiplexed connection keeps reading frames and queuing their responses until it is closed.
+     */
+    private static class Connection {
+        private SocketChannel channel;
+        private ByteArrayOutputStream line;
+        private List<String> lines;
+        private CommunicationPrimitive request;
+        private boolean multiplexed;
+        private MultiplexedConnection.Header header;
+        private Queue<ByteBuffer> responses;
+        private boolean closeAfterWrite;
+
+        private Connection(SocketChannel channel) {
+            this.channel = channel;
+            line = new ByteArrayOutputStream();
+            lines = new ArrayList<>();
+            responses = new ConcurrentLinkedQueue<>();
+        }
+
+        /**
+         * Checks if the primitive and all its parameters (or all the frame lines) have been read.
+         * @return Boolean
+         */
+        private boolean isRequestComplete() {
+            if (multiplexed) {
+                return header != null && lines.size() == header.getLinesNumber();
+            }
+            return request != null && lines.size() > request.getParametersNumber();
+        }
+
+        /**
+         * Returns the read lines as a reader, as if they were read from the socket.
+         * @return BufferedReader
+         */
+        private BufferedReader getRequestReader() {
+            return MultiplexedConnection.newRequestReader(lines);
+        }
+    }
+
+
+    /**
+     * Constructor method.
+     * @param officesServer OfficesServer
+     * @param serverPort Integer
+     * @param poolThreads ExecutorService
+     * @param location Location
+     */
+    OfficesNioServer(OfficesServer officesServer, int serverPort, ExecutorService poolThreads,
+                     Location location) {
+        this.officesServer = officesServer;
+        this.serverPort = serverPort;
+        this.poolThreads = poolThreads;
+        this.location = location;
+
+        pendingResponses = new ConcurrentLinkedQueue<>();
+        pendingPushConnections = new ConcurrentLinkedQueue<>();
+        charset = Charset.defaultCharset(); // Same charset used by the blocking readers and writers
+    }
+
+
+    /**
+     * Selector loop. Accepts connections, reads requests and writes the responses.
+     * @throws IOException
+     */
+    void run() throws IOException {
+        selector = Selector.open();
+        ServerSocketChannel serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(serverPort), OfficesServer.ACCEPT_BACKLOG);
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+        while (true) {
+            selector.select();
+            registerPendingResponses();
+
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+
+                try {
+                    if (! key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept(serverChannel);
+                    } else {
+                        if (key.isReadable()) {
+                            read(key, buffer);
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            write(key);
+                        }
+                    }
+                } catch (IOException e) {
+                    System.out.println(location.getLabel(location.CONNECTION_ERROR_SALESDESK) + ": " + e.toString());
+                    close(key);
+                }
+            }
+
+            handOverPushConnections();
+        }
+    }
+
+
+    /**
+     * Accepts a new connection.
+     * @param serverChannel ServerSocketChannel
+     * @throws IOException
+     */
+    private void accept(ServerSocketChannel serverChannel) throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) {
+            return;
+        }
+
+        channel.configureBlocking(false);
+        channel.register(selector, SelectionKey.OP_READ, new Connection(channel));
+    }
+
+
+    /**
+     * Reads the available bytes of a connection and decodes its lines.
+     * @param key SelectionKey
+     * @param buffer ByteBuffer
+     * @throws IOException
+     */
+    private void read(SelectionKey key, ByteBuffer buffer) throws IOException {
+        Connection connection = (Connection) key.attachment();
+        buffer.clear();
+
+        if (connection.channel.read(buffer) < 0) {
+            close(key);
+            return;
+        }
+        buffer.flip();
+
+        while (buffer.hasRemaining()) {
+            byte character = buffer.get();
+            if (character == LINE_END) {
+                newLine(connection);
+
+                if (connection.isRequestComplete()) {
+                    dispatch(key, connection);
+                    if (! connection.multiplexed) {
+                        return;
+                    }
+                }
+            } else if (character != CARRIAGE_RETURN) {
+                connection.line.write(character);
+            }
+        }
+    }
+
+
+    /**
+     * Adds a completed line to the request.
+     * @param connection Connection
+     * @throws IOException
+     */
+    private void newLine(Connection connection) throws IOException {
+        String line = new String(connection.line.toByteArray(), charset);
+        connection.line.reset();
+
+        if (connection.multiplexed) {
+            if (connection.header == null) {
+                connection.header = new MultiplexedConnection.Header(line);
+            } else {
+                connection.lines.add(line);
+            }
+
+        } else {
+            if (connection.request == null) {
+                try {
+                    connection.request = CommunicationPrimitive.newPrimitive(new Scanner(new StringReader(line)));
+                } catch (NoSuchElementException e) {
+                    throw new IOException(location.getLabel(location.ERROR_READING_INPUT));
+                }
+            }
+            connection.lines.add(line);
+        }
+    }
+
+
+    /**
+     * Dispatches a complete request. Push connections keep their socket open, so they are handed over
+     * to the blocking classes once the channel has been deregistered from the selector. A multiplex
+     * request turns the connection into a multiplexed one.
+     * @param key SelectionKey
+     * @param connection Connection
+     */
+    private void dispatch(SelectionKey key, Connection connection) {
+        if (connection.multiplexed) {
+            BufferedReader request = connection.getRequestReader();
+            String correlationID = connection.header.getCorrelationID();
+            connection.header = null;
+            connection.lines = new ArrayList<>();
+
+            poolThreads.execute(() -> respond(connection, MultiplexedConnection.newFrame(correlationID,
+                    OfficeServer.processRequest(officesServer, request, location))));
+            return;
+        }
+
+        switch (connection.request) {
+            case CONNECT_PUSH:
+                key.cancel();
+                pendingPushConnections.add(connection);
+                break;
+
+            case MULTIPLEX:
+                connection.multiplexed = true;
+                connection.lines = new ArrayList<>();
+                break;
+
+            default:
+                key.interestOps(0);
+                connection.closeAfterWrite = true;
+                BufferedReader request = connection.getRequestReader();
+                poolThreads.execute(() -> respond(connection,
+                        OfficeServer.processRequest(officesServer, request, location)));
+        }
+    }
+
+
+    /**
+     * Queues a response to be written by the selector thread.
+     * @param connection Connection
+     * @param response String
+     */
+    private void respond(Connection connection, String response) {
+        connection.responses.add(ByteBuffer.wrap(response.getBytes(charset)));
+        pendingResponses.add(connection);
+        selector.wakeup();
+    }
+
+
+    /**
+     * Registers the connections whose response is ready to be written.
+     */
+    private void registerPendingResponses() {
+        Connection connection;
+        while ((connection = pendingResponses.poll()) != null) {
+            SelectionKey key = connection.channel.keyFor(selector);
+            if (key != null && key.isValid()) {
+                key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+            }
+        }
+    }
+
+
+    /**
+     * Writes the queued responses. A connection per request is closed when its response has been
+     * completely written.
+     * @param key SelectionKey
+     * @throws IOException
+     */
+    private void write(SelectionKey key) throws IOException {
+        Connection connection = (Connection) key.attachment();
+        ByteBuffer response;
+
+        while ((response = connection.responses.peek()) != null) {
+            connection.channel.write(response);
+            if (response.hasRemaining()) {
+                return; // Socket buffer full, waits for the next write event
+            }
+            connection.responses.poll();
+        }
+
+        if (connection.closeAfterWrite) {
+            close(key);
+        } else {
+            key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+        }
+    }
+
+
+    /**
+     * Hands over the push connections to a pool thread in blocking mode.
+     * @throws IOException
+     */
+    private void handOverPushConnections() throws IOException {
+        if (pendingPushConnections.isEmpty()) {
+            return;
+        }
+        selector.selectNow(); // Flushes the cancelled keys
+
+        Connection connection;
+        while ((connection = pendingPushConnections.poll()) != null) {
+            SocketChannel channel = connection.channel;
+            BufferedReader request = connection.getRequestReader();
+
+            try {
+                channel.configureBlocking(true);
+                poolThreads.execute(new OfficeServer(officesServer, channel.socket(), request,
+                        new PrintWriter(new StringWriter()), location));
+            } catch (IOException e) {
+                System.out.println(location.getLabel(location.CONNECTION_ERROR_SALESDESK) + ": " + e.toString());
+                channel.close();
+            }
+        }
+    }
+
+
+    /**
+     * Closes a connection.
+     * @param key SelectionKey
+     */
+    private void close(SelectionKey key) {
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException e) {
+            // Connection has been already closed
+        }
+    }
+}
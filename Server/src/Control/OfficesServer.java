@@ -1,7 +1,9 @@
 package Control;
 
 import Internationalization.Location;
+import Model.Booking;
 import Model.Passenger;
+import Model.SalesDesk;
 import Model.SalesDesks;
 import Model.Travel;
 
@@ -11,13 +13,13 @@ import java.net.BindException;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
 
 public class OfficesServer extends Thread{
     private SalesDesks salesDesks;
-    private Map<String, SalesDeskPushConnection> salesDeskPushConnectionsMap;
+    private SalesDeskPushConnections salesDeskPushConnections;
     private String language;
     private String country;
     private Location location;
@@ -25,15 +27,34 @@ public class OfficesServer extends Thread{
 
     private int threadsNumber;
     private int serverPort;
+    private boolean nioMode;
+    private boolean virtualThreads;
+    private int pushQueueSize;
+    private boolean pushCoalesce;
+    private int pushMaxLag;
+    private ExecutorService poolThreads;
     private int defaultPort = 60236;
     private int defaultThreadsNumber = 12;
+    private int defaultPushQueueSize = 256;
+    private int defaultPushMaxLag = 30; //seconds
     private static final int ID_LENGTH = 6; // Unique ID length
+    static final int ACCEPT_BACKLOG = 1024; //Connections not accepted yet, as the desks reconnect at once
 
     private static final String CONFIG_FILE_PATH  = "storage/conf/config.properties";
     private static final String LANGUAGE_PARAMETER = "language";
     private static final String COUNTRY_PARAMETER = "country";
     private static final String THREADS_PARAMETER = "max_threads";
     private static final String SERVER_PORT_PARAMETER = "port";
+    private static final String SERVER_MODE_PARAMETER = "server_mode";
+    private static final String NIO_SERVER_MODE = "nio";
+    private static final String EXECUTOR_PARAMETER = "executor";
+    private static final String VIRTUAL_EXECUTOR = "virtual";
+    private static final String VIRTUAL_EXECUTOR_METHOD = "newVirtualThreadPerTaskExecutor";
+    private static final String VIRTUAL_THREAD_METHOD = "startVirtualThread";
+    private static final String PUSH_QUEUE_SIZE_PARAMETER = "push_queue_size";
+    private static final String PUSH_SLOW_POLICY_PARAMETER = "push_slow_policy";
+    private static final String PUSH_DISCONNECT_POLICY = "disconnect";
+    private static final String PUSH_MAX_LAG_PARAMETER = "push_max_lag";
     private static final String ERROR_CONFIGS_SERVER = "Error loading server configuration. " +
             "Default values will be loaded.";
     private static final String ERROR_CONFIGS_LANGUAGE = "Error loading language configuration. " +
@@ -42,6 +63,8 @@ public class OfficesServer extends Thread{
     private static final String WAITING_REQUESTS = "---Waiting for requests---";
     private static final String EXECUTION_ERROR = "Error: Server running in ";
     private static final String DESK_CONNECTION_ERROR = "Failed to create desk connection";
+    private static final String VIRTUAL_THREADS_NOT_SUPPORTED = "Virtual threads are not supported by this " +
+            "Java version. A fixed threads pool will be used.";
 
 
     public static int WAITTIME_CLIENT = 2000; //miliseconds
@@ -50,9 +73,9 @@ public class OfficesServer extends Thread{
 
 
     public OfficesServer() {
-        salesDeskPushConnectionsMap = new ConcurrentHashMap<>();
-
         loadConfigs();
+        salesDeskPushConnections = new SalesDeskPushConnections(newPushWriters(), pushQueueSize, pushCoalesce,
+                pushMaxLag * 1000);
         //If it can't loads any location, the application closes.
 
         try {
@@ -62,8 +85,8 @@ public class OfficesServer extends Thread{
             System.exit(1);
         }
 
-        salesDesks = new SalesDesks(location);
-        sendPeriodicTests();
+        salesDesks = new SalesDesks(location, config);
+        salesDeskPushConnections.sendPeriodicTests(WAITTIME_TEST_CONNECTIONS);
         start();
     }
 
@@ -71,13 +94,23 @@ public class OfficesServer extends Thread{
      * Loads the configuration from a properties file.
      */
     private void loadConfigs() {
+        config = new Properties();
+        pushQueueSize = defaultPushQueueSize;
+        pushCoalesce = true;
+        pushMaxLag = defaultPushMaxLag;
         try {
-            config = new Properties();
             config.load(new FileInputStream(CONFIG_FILE_PATH));
             language = config.getProperty(LANGUAGE_PARAMETER);
             country = config.getProperty(COUNTRY_PARAMETER);
             serverPort = Integer.parseInt(config.getProperty(SERVER_PORT_PARAMETER));
             threadsNumber = Integer.parseInt(config.getProperty(THREADS_PARAMETER));
+            nioMode = NIO_SERVER_MODE.equalsIgnoreCase(config.getProperty(SERVER_MODE_PARAMETER));
+            virtualThreads = VIRTUAL_EXECUTOR.equalsIgnoreCase(config.getProperty(EXECUTOR_PARAMETER));
+            pushQueueSize = Integer.parseInt(config.getProperty(PUSH_QUEUE_SIZE_PARAMETER,
+                    String.valueOf(defaultPushQueueSize)));
+            pushCoalesce = ! PUSH_DISCONNECT_POLICY.equalsIgnoreCase(config.getProperty(PUSH_SLOW_POLICY_PARAMETER));
+            pushMaxLag = Integer.parseInt(config.getProperty(PUSH_MAX_LAG_PARAMETER,
+                    String.valueOf(defaultPushMaxLag)));
 
             if (language.equals("") || country.equals("")){
                 System.out.println(ERROR_CONFIGS_LANGUAGE);
@@ -93,34 +126,122 @@ public class OfficesServer extends Thread{
 
 
     /**
-     * Notifies a change on a company travel to all clients.
+     * Notifies a change on a company travel to all clients. The notifications are queued, so it does not
+     * wait for the clients.
      * @param companyID String
      * @param communicationPrimitive CommunicationPrimitive
      * @param parameters String
-     * @throws IOException
      */
     private void notifyOfficesPush(String companyID, CommunicationPrimitive communicationPrimitive,
-                                   String parameters) throws IOException {
-
-        for(SalesDeskPushConnection salesDeskPushConnection : salesDeskPushConnectionsMap.values()) {
-            if (salesDeskPushConnection.getCompanyID().equals(companyID)) {
-                salesDeskPushConnection.sendRequest(
-                        communicationPrimitive,
-                        WAITTIME_CLIENT,
-                        parameters);
+                                   String parameters) {
+
+        salesDeskPushConnections.notifyCompany(companyID, communicationPrimitive, parameters);
+    }
+
+
+    /**
+     * Creates the executor for the requests. On virtual mode each request runs on its own virtual thread,
+     * otherwise a fixed pool of threadsNumber threads is used.
+     * @return ExecutorService
+     */
+    private ExecutorService newPoolThreads() {
+        ExecutorService virtualThreadsExecutor = newVirtualThreadsExecutor();
+        return virtualThreadsExecutor != null ? virtualThreadsExecutor : Executors.newFixedThreadPool(threadsNumber);
+    }
+
+
+    /**
+     * Creates the executor for the push writers. On virtual mode each writer runs on its own virtual thread,
+     * as the requests do; otherwise on a pool that grows with the connections being written, as a writer
+     * may wait for a slow sales desk.
+     * @return ExecutorService
+     */
+    private ExecutorService newPushWriters() {
+        ExecutorService virtualThreadsExecutor = newVirtualThreadsExecutor();
+        return virtualThreadsExecutor != null ? virtualThreadsExecutor : Executors.newCachedThreadPool();
+    }
+
+
+    /**
+     * Creates an executor running each task on its own virtual thread, on virtual mode. If virtual threads
+     * are not supported, it is notified and the server leaves the virtual mode.
+     * @return ExecutorService or null if not on virtual mode
+     */
+    private ExecutorService newVirtualThreadsExecutor() {
+        if (virtualThreads) {
+            try {
+                return (ExecutorService) Executors.class.getMethod(VIRTUAL_EXECUTOR_METHOD).invoke(null);
+            } catch (ReflectiveOperationException e) {
+                System.out.println(VIRTUAL_THREADS_NOT_SUPPORTED);
+                virtualThreads = false;
             }
         }
+        return null;
     }
 
 
     /**
-     * Runnable. Waits for connections on a loop.
+     * Executes a request on the requests executor.
+     * @param request Runnable
+     */
+    void execute(Runnable request) {
+        poolThreads.execute(request);
+    }
+
+
+    /**
+     * Starts a long-lived session (i.e. a persistent connection reader) out of the requests executor,
+     * so it can not starve it. On virtual mode the session runs on a virtual thread.
+     * @param session Runnable
+     */
+    void startSession(Runnable session) {
+        if (virtualThreads) {
+            try {
+                Thread.class.getMethod(VIRTUAL_THREAD_METHOD, Runnable.class).invoke(null, session);
+                return;
+            } catch (ReflectiveOperationException e) {
+                // Virtual threads not supported, already notified when the executors were created
+            }
+        }
+        new Thread(session).start();
+    }
+
+
+    /**
+     * Builds the parameters of a seat change notification: travel ID, seat, travel seats version and
+     * the new passenger (no passenger if the seat has been deallocated). The travel ID goes first, so
+     * sales desks that only read the ID keep working.
+     * @param travelID String
+     * @param seat Integer
+     * @param version Long travel seats version after the change
+     * @param passenger Passenger
+     * @return String
+     */
+    private String seatChange(String travelID, int seat, long version, Passenger passenger) {
+        String parameters = travelID + "\n" + seat + "\n" + version;
+        if (passenger != null) {
+            parameters += "\n" + passenger.toString();
+        }
+        return parameters;
+    }
+
+
+    /**
+     * Runnable. Waits for connections on a loop. On NIO mode a single selector thread waits for all
+     * the connections and the pool threads only process complete requests.
      */
     @Override
     public void run() {
         try {
-            ExecutorService poolThreads = Executors.newFixedThreadPool(threadsNumber);
-            ServerSocket serverSocket = new ServerSocket(serverPort);
+            poolThreads = newPoolThreads();
+
+            if (nioMode) {
+                System.out.println(WAITING_REQUESTS);
+                new OfficesNioServer(this, serverPort, poolThreads, location).run();
+                return;
+            }
+
+            ServerSocket serverSocket = new ServerSocket(serverPort, ACCEPT_BACKLOG);
 
             while(true) {
                 System.out.println(WAITING_REQUESTS);
@@ -137,41 +258,13 @@ public class OfficesServer extends Thread{
     }
 
 
-    /**
-     * Sends periodic tests to maintain push connections alive.
-     */
-    private void sendPeriodicTests() {
-        new Timer().scheduleAtFixedRate(new TimerTask() {
-            @Override
-            public void run() {
-                for(SalesDeskPushConnection salesDeskPushConnection : salesDeskPushConnectionsMap.values()) {
-                    try {
-                        salesDeskPushConnection.sendRequest(CommunicationPrimitive.TEST,
-                                WAITTIME_TEST_CONNECTIONS);
-                    } catch (IOException e1) {
-                        System.out.println(OfficeServer.DESK_CONNECTION_ERROR + " " +
-                                salesDeskPushConnection.toString());
-
-                        salesDeskPushConnectionsMap.remove(salesDeskPushConnection.getConnectionID());
-                        try {
-                            salesDeskPushConnection.endConnection();
-                        } catch (IOException e2) {
-                            // Connection has been already closed
-                        }
-                    }
-                }
-            }
-        }, WAITTIME_TEST_CONNECTIONS, WAITTIME_TEST_CONNECTIONS);
-    }
-
-
     /**
      *  Creates a connection unique identifier for Offices.
      */
-    synchronized String createConnectionID() {
+    String createConnectionID() {
         char[] possibleChars = "0123456789abcdefghijklmnopqrstuvwxyz0123456789".toCharArray();
         StringBuilder uniqueID = new StringBuilder(ID_LENGTH);
-        Random random = new Random();
+        Random random = ThreadLocalRandom.current();
 
         for (int i = 0; i<ID_LENGTH; i++) {
             uniqueID.append(possibleChars[random.nextInt(possibleChars.length)]);
@@ -180,17 +273,22 @@ public class OfficesServer extends Thread{
     }
 
 
+    /**
+     * Creates the sales desk of a company if it has not got one yet. Requests of other companies are not
+     * blocked meanwhile.
+     * @param companyID String
+     */
+    void newDesk(String companyID) {
+        salesDesks.newDesk(companyID);
+    }
+
+
     /**
      * New push connection.
      * @param salesDeskPushConnection SalesDeskPushConnection
      */
-    synchronized void newPushConnection(SalesDeskPushConnection salesDeskPushConnection) {
-        String companyID = salesDeskPushConnection.getCompanyID();
-        if ( ! salesDesks.existsDesk(companyID)) {
-            salesDesks.newDesk(companyID);
-        }
-
-        salesDeskPushConnectionsMap.put(salesDeskPushConnection.getConnectionID(), salesDeskPushConnection);
+    void newPushConnection(SalesDeskPushConnection salesDeskPushConnection) {
+        salesDeskPushConnections.add(salesDeskPushConnection);
     }
 
 
@@ -200,25 +298,16 @@ public class OfficesServer extends Thread{
      * @return Boolean
      * @throws IOException
      */
-    synchronized boolean removePushConnection(String connectionID) throws IOException {
-        SalesDeskPushConnection salesDeskPushConnection = salesDeskPushConnectionsMap.get(connectionID);
-
-        if (salesDeskPushConnection == null) {
-            return false;
-        }
-
-        salesDeskPushConnection.endConnection();
-        salesDeskPushConnectionsMap.remove(connectionID);
-
-        return true;
+    boolean removePushConnection(String connectionID) throws IOException {
+        return salesDeskPushConnections.remove(connectionID);
     }
 
 
-
-
-
     /**
-     * New assignation. Notifies to all sales desk from the same company.
+     * New assignation. Notifies to all sales desk from the same company. The seat is changed under the
+     * travel lock of the sales desk and notified once it is released, with the version of the change:
+     * notifications of a travel racing each other may be queued out of order, and a sales desk which
+     * finds a version gap requests the whole travel again.
      * @param companyID String
      * @param travel Travel
      * @param passenger Passenger
@@ -226,43 +315,56 @@ public class OfficesServer extends Thread{
      * @return Boolean
      * @throws IOException
      */
-    synchronized boolean assign(String companyID, Travel travel, Passenger passenger, int seat)
-            throws IOException {
-
-        if ( ! salesDesks.assign(companyID, travel, passenger, seat)) {
+    boolean assign(String companyID, Travel travel, Passenger passenger, int seat) throws IOException {
+        long version = salesDesks.assign(companyID, travel, passenger, seat);
+        if (version == SalesDesk.NOT_CHANGED) {
             return false;
         }
 
-        notifyOfficesPush(companyID, CommunicationPrimitive.ASSIGN, travel.getId());
+        notifyOfficesPush(companyID, CommunicationPrimitive.ASSIGN, seatChange(travel.getId(), seat, version,
+                passenger));
         return true;
     }
 
 
     /**
-     * New deallocation. Notifies to all sales desk from the same company.
+     * New deallocation. Notifies to all sales desk from the same company, as on assign.
      * @param companyID
      * @param travel
      * @param seat
      * @return
      * @throws IOException
      */
-    synchronized boolean deallocate(String companyID, Travel travel, int seat) throws IOException {
-        if (! salesDesks.deallocate(companyID, travel, seat)) {
+    boolean deallocate(String companyID, Travel travel, int seat) throws IOException {
+        long version = salesDesks.deallocate(companyID, travel, seat);
+        if (version == SalesDesk.NOT_CHANGED) {
             return false;
         }
 
-        notifyOfficesPush(companyID, CommunicationPrimitive.DEALLOCATE, travel.getId());
+        notifyOfficesPush(companyID, CommunicationPrimitive.DEALLOCATE, seatChange(travel.getId(), seat, version,
+                null));
         return true;
     }
 
 
+    /**
+     * Returns the bookings of a passenger.
+     * @param companyID String
+     * @param dni String
+     * @return List<Booking>
+     */
+    List<Booking> passengerBookings(String companyID, String dni) {
+        return salesDesks.passengerBookings(companyID, dni);
+    }
+
+
     /**
      * Searches a passenger.
      * @param companyID String
      * @param dni String
      * @return Passenger
      */
-    synchronized Passenger searchPassenger(String companyID, String dni) {
+    Passenger searchPassenger(String companyID, String dni) {
         return salesDesks.searchPassenger(companyID, dni);
     }
 
@@ -273,7 +375,7 @@ public class OfficesServer extends Thread{
      * @param travelID String
      * @return Passenger
      */
-    synchronized Travel searchTravel(String companyID, String travelID) {
+    Travel searchTravel(String companyID, String travelID) {
         return salesDesks.searchTravel(companyID, travelID);
     }
 
@@ -285,22 +387,60 @@ public class OfficesServer extends Thread{
      * @param seat Integer
      * @return Passenger
      */
-    synchronized Passenger whoIsSitting(String companyID, Travel travel, int seat) {
+    Passenger whoIsSitting(String companyID, Travel travel, int seat) {
         return salesDesks.whoIsSitting(companyID, travel, seat);
     }
 
 
+    /**
+     * Returns the occupied seats of a travel with their passengers.
+     * @param companyID String
+     * @param travelID String
+     * @return Map<Integer, Passenger>
+     */
+    Map<Integer, Passenger> seatMap(String companyID, String travelID) {
+        return salesDesks.seatMap(companyID, travelID);
+    }
+
+
     /**
      * Searches travels for a date.
      * @param companyID
      * @param date
      * @return
      */
-    synchronized List searchTravelsPerDate(String companyID, GregorianCalendar date) {
+    List searchTravelsPerDate(String companyID, GregorianCalendar date) {
         return salesDesks.searchTravelsPerDate(companyID, date);
     }
 
 
+    /**
+     * Searches travels between two dates, both included.
+     * @param companyID String
+     * @param from GregorianCalendar
+     * @param to GregorianCalendar
+     * @return List<Travel>
+     */
+    List<Travel> searchTravelsBetweenDates(String companyID, GregorianCalendar from, GregorianCalendar to) {
+        return salesDesks.searchTravelsBetweenDates(companyID, from, to);
+    }
+
+
+    /**
+     * Searches the travels of a route, optionally between two dates.
+     * @param companyID String
+     * @param origin String
+     * @param destiny String
+     * @param from GregorianCalendar (null for no first day)
+     * @param to GregorianCalendar (null for no last day)
+     * @return List<Travel>
+     */
+    List<Travel> searchRoute(String companyID, String origin, String destiny, GregorianCalendar from,
+                             GregorianCalendar to) {
+        return salesDesks.searchRoute(companyID, origin, destiny, from, to);
+    }
+
+
     /**
      * Main method.
      * @param args
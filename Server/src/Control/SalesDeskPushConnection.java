@@ -8,10 +8,14 @@ import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.io.StringReader;
 import java.net.Socket;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Objects;
 import java.util.Scanner;
-import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.ReentrantLock;
 
 
 class SalesDeskPushConnection {
@@ -20,22 +24,54 @@ class SalesDeskPushConnection {
     private Socket socket;
     private BufferedReader influx;
     private PrintWriter outflux;
-    private CountDownLatch countDownLatch;
+    private ReentrantLock lock;
+    private Deque<Notification> notifications;
+    private boolean draining;
+    private ReentrantLock notificationsLock;
+    private Deque<Long> unacknowledged; //Write times of the notifications waiting for their ack, guarded by lock
+
+
+    /**
+     * Notification waiting to be written to the sales desk.
+     */
+    private static class Notification {
+        private CommunicationPrimitive request;
+        private String parameters;
+        private String travelID;
+        private long queuedTime;
+
+        /**
+         * Constructor method. The travel ID is the first parameter of a seat change.
+         * @param request CommunicationPrimitive
+         * @param parameters String
+         */
+        private Notification(CommunicationPrimitive request, String parameters) {
+            this.request = request;
+            this.parameters = parameters;
+            if (parameters != null) {
+                int end = parameters.indexOf('\n');
+                travelID = end < 0 ? parameters : parameters.substring(0, end);
+            }
+            queuedTime = System.currentTimeMillis();
+        }
+    }
+
 
     /**
      * Constructor method.
      * @param connectionID String
      * @param companyID String
      * @param socket Socket
-     * @param countDownLatch CountDownLatch
      * @throws IOException
      */
-    public SalesDeskPushConnection(String connectionID, String companyID, Socket socket,
-                                   CountDownLatch countDownLatch) throws IOException {
+    public SalesDeskPushConnection(String connectionID, String companyID, Socket socket) throws IOException {
         this.connectionID = connectionID;
         this.companyID = companyID;
         this.socket = socket;
-        this.countDownLatch = countDownLatch;
+        lock = new ReentrantLock();
+        notifications = new ArrayDeque<>();
+        notificationsLock = new ReentrantLock();
+        unacknowledged = new ArrayDeque<>();
 
         influx = new BufferedReader(new InputStreamReader(socket.getInputStream()));
 
@@ -110,13 +146,16 @@ class SalesDeskPushConnection {
      * @return CommunicationPrimitive
      * @throws IOException
      */
-    synchronized CommunicationPrimitive sendRequest(CommunicationPrimitive request, int waitTime,
-                                                    String parameters, List<String> results)
-            throws IOException {
+    CommunicationPrimitive sendRequest(CommunicationPrimitive request, int waitTime, String parameters,
+                                       List<String> results) throws IOException {
+        lock.lock();
+        try {
+            send(request, waitTime, parameters);
 
-        send(request, waitTime, parameters);
-
-        return receive(results);
+            return receive(results);
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
@@ -127,8 +166,8 @@ class SalesDeskPushConnection {
      * @return CommunicationPrimitive
      * @throws IOException
      */
-    synchronized CommunicationPrimitive sendRequest(CommunicationPrimitive request, int waitTime,
-                                                    String parameters) throws IOException {
+    CommunicationPrimitive sendRequest(CommunicationPrimitive request, int waitTime, String parameters)
+            throws IOException {
 
         return sendRequest(request, waitTime, parameters, new ArrayList());
     }
@@ -140,22 +179,200 @@ class SalesDeskPushConnection {
      * @return CommunicationPrimitive
      * @throws IOException
      */
-    synchronized CommunicationPrimitive sendRequest(CommunicationPrimitive request, int waitTime)
+    CommunicationPrimitive sendRequest(CommunicationPrimitive request, int waitTime)
             throws IOException {
 
         return sendRequest(request, waitTime, null, new ArrayList());
     }
 
     /**
-     * Ends the connection.
+     * Queues a notification to be written by the connection writer. When the queue is full and coalesce is
+     * set, the pending notifications of the same travel are replaced by a single one with the travel ID
+     * only, so the sales desk requests the whole travel again. If there are none to coalesce with (the
+     * queue is full of other travels), the notification does not fit: rather than losing a seat change
+     * the sales desk would never notice, the connection is dropped, and the sales desk reconnects and
+     * requests the shown travel again.
+     * @param request CommunicationPrimitive
+     * @param parameters String
+     * @param queueSize Integer
+     * @param coalesce Boolean
+     * @return Boolean false if the notification does not fit, so the connection must be dropped
+     */
+    boolean offer(CommunicationPrimitive request, String parameters, int queueSize, boolean coalesce) {
+        Notification notification = new Notification(request, parameters);
+
+        notificationsLock.lock();
+        try {
+            if (notifications.size() < queueSize) {
+                notifications.add(notification);
+                return true;
+            }
+            if ( ! coalesce || notification.travelID == null) {
+                return false;
+            }
+
+            boolean coalesced = false;
+            Iterator<Notification> iterator = notifications.iterator();
+            while (iterator.hasNext()) {
+                Notification queued = iterator.next();
+                if (Objects.equals(queued.travelID, notification.travelID)) {
+                    iterator.remove();
+                    coalesced = true;
+                }
+            }
+            if (coalesced) {
+                notifications.add(new Notification(request, notification.travelID));
+            }
+            return coalesced;
+        } finally {
+            notificationsLock.unlock();
+        }
+    }
+
+
+    /**
+     * Checks if there are not queued notifications.
+     * @return Boolean
+     */
+    boolean isIdle() {
+        notificationsLock.lock();
+        try {
+            return notifications.isEmpty();
+        } finally {
+            notificationsLock.unlock();
+        }
+    }
+
+
+    /**
+     * Marks the connection as being drained. Only one writer drains a connection at a time.
+     * @return Boolean true if the caller must start the writer
+     */
+    boolean startDraining() {
+        notificationsLock.lock();
+        try {
+            if (draining || notifications.isEmpty()) {
+                return false;
+            }
+            draining = true;
+            return true;
+        } finally {
+            notificationsLock.unlock();
+        }
+    }
+
+
+    /**
+     * Writes the queued notifications until the queue is empty. The acknowledgements of the sales desk are
+     * read as they arrive, without waiting for them; every notification but the tests (which the sales
+     * desks do not acknowledge) waits for one.
      * @throws IOException
      */
-    synchronized void endConnection() throws IOException {
-        influx.close();
-        outflux.close();
-        socket.close();
+    void drain() throws IOException {
+        while (true) {
+            Notification notification;
+            notificationsLock.lock();
+            try {
+                notification = notifications.poll();
+                if (notification == null) {
+                    draining = false;
+                    return;
+                }
+            } finally {
+                notificationsLock.unlock();
+            }
+
+            lock.lock();
+            try {
+                outflux.println(notification.request.toString());
+                if (notification.parameters != null) {
+                    outflux.println(notification.parameters);
+                }
+                outflux.println(CommunicationPrimitive.END);
+
+                if (outflux.checkError()) {
+                    throw new IOException(connectionID);
+                }
+
+                if (notification.request != CommunicationPrimitive.TEST) {
+                    unacknowledged.add(System.currentTimeMillis());
+                }
+                readAcknowledgements();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+
+    /**
+     * Reads the acknowledgements (ok or nok) that have arrived, each one for the oldest unacknowledged
+     * notification. Called with the lock held.
+     * @throws IOException if the sales desk closed the connection
+     */
+    private void readAcknowledgements() throws IOException {
+        while (influx.ready()) {
+            String line = influx.readLine();
+            if (line == null) {
+                throw new IOException(connectionID);
+            }
+            line = line.trim();
+            if (line.equals(CommunicationPrimitive.OK.toString())
+                    || line.equals(CommunicationPrimitive.NOK.toString())) {
+                unacknowledged.poll();
+            }
+        }
+    }
+
 
-        countDownLatch.countDown();
+    /**
+     * Returns how long the oldest written notification has been waiting for its acknowledgement. If the
+     * writer is busy on the connection meanwhile, it is not waited for: the queue lag covers it.
+     * @return Long (miliseconds)
+     * @throws IOException if the sales desk closed the connection
+     */
+    long getAcknowledgementDelay() throws IOException {
+        if ( ! lock.tryLock()) {
+            return 0;
+        }
+        try {
+            readAcknowledgements();
+            Long oldest = unacknowledged.peek();
+            return oldest == null ? 0 : System.currentTimeMillis() - oldest;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Returns how long the oldest queued notification has been waiting.
+     * @return Long (miliseconds)
+     */
+    long getLag() {
+        notificationsLock.lock();
+        try {
+            Notification oldest = notifications.peek();
+            return oldest == null ? 0 : System.currentTimeMillis() - oldest.queuedTime;
+        } finally {
+            notificationsLock.unlock();
+        }
+    }
+
+
+    /**
+     * Ends the connection. The socket is closed first, so a writer blocked on a slow sales desk is released.
+     * @throws IOException
+     */
+    void endConnection() throws IOException {
+        socket.close();
+        lock.lock();
+        try {
+            influx.close();
+            outflux.close();
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
@@ -0,0 +1,213 @@
+/*
+ * Registry of the sales desks push connections. It owns the push sockets, so a connected sales desk does
+ * not keep any request thread busy while it waits for notifications. Notifications are queued on each
+ * connection and written by its own writer, so a slow sales desk never delays a sale. A connection is
+ * dropped when it fails, when its queue lags behind, or when the sales desk does not acknowledge its
+ * notifications (i.e. it hangs with its socket still open).
+ *
+ * Control.SalesDeskPushConnections.java
+ *
+ * @version 2.0
+ * @author Pablo Sanz Alguacil
+ */
+
+package Control;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+
+
+class SalesDeskPushConnections {
+    private static final int LAG_CHECK_PERIOD = 1000; //miliseconds
+    private static final String SLOW_CONNECTION = "Slow desk connection dropped";
+    private static final String UNACKNOWLEDGED_CONNECTION = "Desk connection dropped without acknowledgements";
+
+    private Map<String, SalesDeskPushConnection> salesDeskPushConnectionsMap;
+    private ExecutorService writers;
+    private Timer timer;
+    private int queueSize;
+    private boolean coalesce;
+    private int maxLag;
+
+
+    /**
+     * Constructor method.
+     * @param writers ExecutorService where the connection writers run
+     * @param queueSize Integer maximum number of queued notifications per connection
+     * @param coalesce Boolean true to coalesce the notifications of a full queue, false to drop the connection
+     * @param maxLag Integer (miliseconds) maximum wait of a queued notification, and of a written one for
+     * its acknowledgement, 0 to wait forever
+     */
+    SalesDeskPushConnections(ExecutorService writers, int queueSize, boolean coalesce, int maxLag) {
+        this.writers = writers;
+        this.queueSize = queueSize;
+        this.coalesce = coalesce;
+        this.maxLag = maxLag;
+        salesDeskPushConnectionsMap = new ConcurrentHashMap<>();
+        timer = new Timer(true);
+
+        if (maxLag > 0) {
+            timer.scheduleAtFixedRate(new TimerTask() {
+                @Override
+                public void run() {
+                    for (SalesDeskPushConnection salesDeskPushConnection : salesDeskPushConnectionsMap.values()) {
+                        checkLag(salesDeskPushConnection);
+                    }
+                }
+            }, LAG_CHECK_PERIOD, LAG_CHECK_PERIOD);
+        }
+    }
+
+
+    /**
+     * Adds a push connection.
+     * @param salesDeskPushConnection SalesDeskPushConnection
+     */
+    void add(SalesDeskPushConnection salesDeskPushConnection) {
+        salesDeskPushConnectionsMap.put(salesDeskPushConnection.getConnectionID(), salesDeskPushConnection);
+    }
+
+
+    /**
+     * Removes and closes a push connection.
+     * @param connectionID String
+     * @return Boolean
+     * @throws IOException
+     */
+    boolean remove(String connectionID) throws IOException {
+        SalesDeskPushConnection salesDeskPushConnection = salesDeskPushConnectionsMap.remove(connectionID);
+
+        if (salesDeskPushConnection == null) {
+            return false;
+        }
+
+        salesDeskPushConnection.endConnection();
+        return true;
+    }
+
+
+    /**
+     * Returns the number of connected sales desks.
+     * @return Integer
+     */
+    int size() {
+        return salesDeskPushConnectionsMap.size();
+    }
+
+
+    /**
+     * Notifies a change on a company travel to all its sales desks. It only queues the notification, so it
+     * returns without waiting for any sales desk. The connections that fail or lag behind are removed.
+     * @param companyID String
+     * @param communicationPrimitive CommunicationPrimitive
+     * @param parameters String
+     */
+    void notifyCompany(String companyID, CommunicationPrimitive communicationPrimitive, String parameters) {
+        for (SalesDeskPushConnection salesDeskPushConnection : salesDeskPushConnectionsMap.values()) {
+            if (salesDeskPushConnection.getCompanyID().equals(companyID)) {
+                enqueue(salesDeskPushConnection, communicationPrimitive, parameters);
+            }
+        }
+    }
+
+
+    /**
+     * Queues a notification on a connection and starts its writer if it is not running.
+     * @param salesDeskPushConnection SalesDeskPushConnection
+     * @param communicationPrimitive CommunicationPrimitive
+     * @param parameters String
+     */
+    private void enqueue(SalesDeskPushConnection salesDeskPushConnection,
+                         CommunicationPrimitive communicationPrimitive, String parameters) {
+
+        if ( ! salesDeskPushConnection.offer(communicationPrimitive, parameters, queueSize, coalesce)) {
+            System.out.println(SLOW_CONNECTION + " " + salesDeskPushConnection.toString());
+            discard(salesDeskPushConnection);
+            return;
+        }
+        if ( ! checkLag(salesDeskPushConnection)) {
+            return;
+        }
+
+        if (salesDeskPushConnection.startDraining()) {
+            writers.execute(() -> {
+                try {
+                    salesDeskPushConnection.drain();
+                } catch (IOException e) {
+                    discard(salesDeskPushConnection);
+                }
+            });
+        }
+    }
+
+
+    /**
+     * Drops a connection whose oldest queued notification has waited more than the maximum lag, or whose
+     * oldest written notification has waited that long for its acknowledgement.
+     * @param salesDeskPushConnection SalesDeskPushConnection
+     * @return Boolean false if the connection has been dropped
+     */
+    private boolean checkLag(SalesDeskPushConnection salesDeskPushConnection) {
+        if (maxLag <= 0) {
+            return true;
+        }
+        if (salesDeskPushConnection.getLag() > maxLag) {
+            System.out.println(SLOW_CONNECTION + " " + salesDeskPushConnection.toString());
+            discard(salesDeskPushConnection);
+            return false;
+        }
+        try {
+            if (salesDeskPushConnection.getAcknowledgementDelay() > maxLag) {
+                System.out.println(UNACKNOWLEDGED_CONNECTION + " " + salesDeskPushConnection.toString());
+                discard(salesDeskPushConnection);
+                return false;
+            }
+        } catch (IOException e) {
+            discard(salesDeskPushConnection);
+            return false;
+        }
+        return true;
+    }
+
+
+    /**
+     * Sends periodic tests to maintain push connections alive. A connection with queued notifications
+     * is already being tested by them.
+     * @param period Integer (miliseconds)
+     */
+    void sendPeriodicTests(int period) {
+        timer.scheduleAtFixedRate(new TimerTask() {
+            @Override
+            public void run() {
+                for (SalesDeskPushConnection salesDeskPushConnection : salesDeskPushConnectionsMap.values()) {
+                    if (salesDeskPushConnection.isIdle()) {
+                        enqueue(salesDeskPushConnection, CommunicationPrimitive.TEST, null);
+                    }
+                }
+            }
+        }, period, period);
+    }
+
+
+    /**
+     * Removes a broken connection.
+     * @param salesDeskPushConnection SalesDeskPushConnection
+     */
+    private void discard(SalesDeskPushConnection salesDeskPushConnection) {
+        if ( ! salesDeskPushConnectionsMap.remove(salesDeskPushConnection.getConnectionID(),
+                salesDeskPushConnection)) {
+            return; // Already discarded
+        }
+
+        System.out.println(OfficeServer.DESK_CONNECTION_ERROR + " " + salesDeskPushConnection.toString());
+        try {
+            salesDeskPushConnection.endConnection();
+        } catch (IOException e) {
+            // Connection has been already closed
+        }
+    }
+}
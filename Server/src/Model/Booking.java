@@ -0,0 +1,70 @@
+/*
+ * Type class Model.Booking. A seat held by a passenger: the travel ID and the seat number.
+ *
+ * Model.Booking.java
+ *
+ * @version 2.0
+ * @author Pablo Sanz Alguacil
+ */
+
+package Model;
+
+import java.util.Objects;
+
+public class Booking {
+    private String travelID;
+    private int seat;
+
+
+    /**
+     * Constructor method.
+     * @param travelID String
+     * @param seat Integer
+     */
+    public Booking(String travelID, int seat) {
+        this.travelID = travelID;
+        this.seat = seat;
+    }
+
+
+    /**
+     * Returns the travel ID.
+     * @return String
+     */
+    public String getTravelID() {
+        return travelID;
+    }
+
+
+    /**
+     * Returns the seat.
+     * @return Integer
+     */
+    public int getSeat() {
+        return seat;
+    }
+
+
+    /**
+     * Overwrited equals. Compares an object with this booking.
+     * @param obj Object
+     * @return boolean
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if(this == obj) return true;
+        if(!(obj instanceof Booking)) return false;
+        Booking tmp = (Booking) obj;
+        return seat == tmp.seat && Objects.equals(travelID, tmp.travelID);
+    }
+
+
+    /**
+     * Overwrited hashCode.
+     * @return Integer
+     */
+    @Override
+    public int hashCode() {
+        return 19 * (19 * 23 + travelID.hashCode()) + seat;
+    }
+}
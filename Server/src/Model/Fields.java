@@ -0,0 +1,80 @@
+/*
+ * Type class Model.Fields. Reads the fields of a line one by one, as a Scanner with a fixed delimiter
+ * would, but walking the line in place: no regular expressions and no copies but the returned fields.
+ *
+ * Model.Fields.java
+ *
+ * @version 2.0
+ * @author Pablo Sanz Alguacil
+ */
+
+package Model;
+
+import java.util.InputMismatchException;
+import java.util.NoSuchElementException;
+
+class Fields {
+    private String line;
+    private String separator;
+    private int position;
+
+
+    /**
+     * Constructor method.
+     * @param line String
+     * @param separator String
+     */
+    Fields(String line, String separator) {
+        this.line = line;
+        this.separator = separator;
+        position = 0;
+    }
+
+
+    /**
+     * Checks if there is another field.
+     * @return Boolean
+     */
+    boolean hasNext() {
+        return position >= 0 && position < line.length();
+    }
+
+
+    /**
+     * Returns the next field.
+     * @return String
+     * @throws NoSuchElementException if there are no more fields
+     */
+    String next() throws NoSuchElementException {
+        if ( ! hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        int end = line.indexOf(separator, position);
+        String field;
+        if (end < 0) {
+            field = line.substring(position);
+            position = -1;
+        } else {
+            field = line.substring(position, end);
+            position = end + separator.length();
+        }
+        return field;
+    }
+
+
+    /**
+     * Returns the next field as an integer.
+     * @return Integer
+     * @throws NoSuchElementException if there are no more fields, or InputMismatchException if it is not
+     * an integer
+     */
+    int nextInt() throws NoSuchElementException {
+        String field = next();
+        try {
+            return Integer.parseInt(field.trim());
+        } catch (NumberFormatException e) {
+            throw new InputMismatchException(field);
+        }
+    }
+}
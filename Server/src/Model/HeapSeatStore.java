@@ -0,0 +1,100 @@
+/*
+ * Type class Model.HeapSeatStore. Default seat store: the seats of every travel are Java arrays on the
+ * heap.
+ *
+ * Model.HeapSeatStore.java
+ *
+ * @version 2.0
+ * @author Pablo Sanz Alguacil
+ */
+
+package Model;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+class HeapSeatStore implements SeatStore {
+    private PassengerTable passengers;
+
+
+    /**
+     * Constructor method.
+     */
+    HeapSeatStore() {
+        this(new PassengerTable());
+    }
+
+
+    /**
+     * Constructor method.
+     * @param passengers PassengerTable of the passenger handles held by the seats
+     */
+    HeapSeatStore(PassengerTable passengers) {
+        this.passengers = passengers;
+    }
+
+
+    /**
+     * Seats of a travel on an array of passenger handles, which is also their occupancy record: a seat is
+     * occupied while it holds a handle.
+     */
+    private static class HeapSeats implements Seats {
+        private AtomicIntegerArray passengers;
+
+        private HeapSeats(int seatsNumber) {
+            passengers = new AtomicIntegerArray(seatsNumber + 1);
+        }
+
+        @Override
+        public int get(int seat) {
+            return passengers.get(seat);
+        }
+
+        @Override
+        public boolean assign(int seat, int passenger) {
+            return passengers.compareAndSet(seat, PassengerTable.NONE, passenger);
+        }
+
+        @Override
+        public boolean release(int seat) {
+            return passengers.getAndSet(seat, PassengerTable.NONE) != PassengerTable.NONE;
+        }
+
+        @Override
+        public boolean isOccupied(int seat) {
+            return passengers.get(seat) != PassengerTable.NONE;
+        }
+
+        @Override
+        public int countOccupied() {
+            int occupied = 0;
+            for (int seat = 1; seat < passengers.length(); seat++) {
+                if (passengers.get(seat) != PassengerTable.NONE) {
+                    occupied++;
+                }
+            }
+            return occupied;
+        }
+    }
+
+
+    /**
+     * Gives the seats of a travel on new arrays.
+     * @param travelID String
+     * @param seatsNumber Integer
+     * @return Seats
+     */
+    @Override
+    public Seats allocate(String travelID, int seatsNumber) {
+        return new HeapSeats(seatsNumber);
+    }
+
+
+    /**
+     * Returns the table of the passenger handles held by the seats.
+     * @return PassengerTable
+     */
+    @Override
+    public PassengerTable getPassengers() {
+        return passengers;
+    }
+}
@@ -0,0 +1,368 @@
+/*
+ * Type class Model.Journal. Append-only log of changes. Every change is a line appended at the end of the
+ * file, so saving a change costs the same whatever the size of the saved state. On startup the journal is
+ * replayed over the last saved state.
+ *
+ * Changes are saved by group commit: a committer thread collects the changes appended meanwhile into a
+ * batch, writes the batch at once, forces it to the disk and then releases every waiting change.
+ *
+ * Compaction: the journal is rotated (the current file is set aside and a new one is started), the state
+ * is saved and then the rotated file is dropped. Changes keep being appended meanwhile.
+ *
+ * Model.Journal.java
+ *
+ * @version 2.0
+ * @author Pablo Sanz Alguacil
+ */
+
+package Model;
+
+import java.io.BufferedReader;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+class Journal {
+    private static final String LINE_END = "\n";
+    private static final String COMMITTER_NAME = "Journal committer ";
+    private static final String ROTATED_EXTENSION = ".old";
+
+    private String fileName;
+    private boolean fsync;
+    private int batchSize;
+    private long batchWindow;
+    private FileChannel channel;
+    private Charset charset;
+    private ReentrantLock lock;
+    private BlockingQueue<Change> changes;
+    private AtomicLong recordsNumber;
+
+
+    /**
+     * Change waiting to be committed.
+     */
+    private static class Change {
+        private byte[] record;
+        private CompletableFuture<Void> committed;
+
+        private Change(byte[] record) {
+            this.record = record;
+            committed = new CompletableFuture<>();
+        }
+    }
+
+
+    /**
+     * Constructor method. Opens the journal to append changes, creating it if it does not exist, and
+     * starts its committer.
+     * @param fileName String
+     * @param fsync Boolean true to force every batch to the disk before releasing its changes
+     * @param batchSize Integer maximum number of changes of a batch
+     * @param batchWindow Integer (miliseconds) time a batch waits for more changes, 0 to take only the
+     * changes already waiting
+     * @throws IOException
+     */
+    Journal(String fileName, boolean fsync, int batchSize, int batchWindow) throws IOException {
+        this.fileName = fileName;
+        this.fsync = fsync;
+        this.batchSize = Math.max(1, batchSize);
+        this.batchWindow = TimeUnit.MILLISECONDS.toNanos(Math.max(0, batchWindow));
+        charset = Charset.defaultCharset(); // Same charset used by the readers
+        lock = new ReentrantLock();
+        changes = new LinkedBlockingQueue<>();
+        recordsNumber = new AtomicLong();
+        channel = open(fileName);
+        repair();
+
+        Thread committer = new Thread(this::commit, COMMITTER_NAME + fileName);
+        committer.setDaemon(true);
+        committer.start();
+    }
+
+
+    /**
+     * Opens a journal file to append changes. It is positioned at its end; the committer is its only
+     * writer, so every write goes on appending.
+     * @param fileName String
+     * @return FileChannel
+     * @throws IOException
+     */
+    private static FileChannel open(String fileName) throws IOException {
+        FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        channel.position(channel.size());
+        return channel;
+    }
+
+
+    /**
+     * Removes a last change without its line end (cut by a crash), so the next changes are not appended
+     * to it.
+     * @throws IOException
+     */
+    private void repair() throws IOException {
+        long length = channel.size();
+        ByteBuffer character = ByteBuffer.allocate(1);
+
+        while (length > 0) {
+            character.clear();
+            channel.read(character, length - 1);
+            if (character.get(0) == LINE_END.charAt(0)) {
+                break;
+            }
+            length--;
+        }
+        if (length < channel.size()) {
+            channel.truncate(length);
+            channel.position(length);
+        }
+    }
+
+
+    /**
+     * Appends a change. It returns once the batch of the change has been saved.
+     * @param record String
+     * @throws IOException
+     */
+    void append(String record) throws IOException {
+        Change change = new Change((record + LINE_END).getBytes(charset));
+        changes.add(change);
+
+        try {
+            change.committed.get();
+        } catch (ExecutionException e) {
+            throw (IOException) e.getCause();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(fileName, e);
+        }
+    }
+
+
+    /**
+     * Committer loop. Takes the waiting changes in batches and saves every batch with a single write.
+     */
+    private void commit() {
+        List<Change> batch = new ArrayList<>();
+
+        while (true) {
+            try {
+                batch.add(changes.take());
+                long deadline = System.nanoTime() + batchWindow;
+                changes.drainTo(batch, batchSize - batch.size());
+
+                while (batch.size() < batchSize && batchWindow > 0) {
+                    Change change = changes.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (change == null) {
+                        break;
+                    }
+                    batch.add(change);
+                    changes.drainTo(batch, batchSize - batch.size());
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            try {
+                write(batch);
+                for (Change change : batch) {
+                    change.committed.complete(null);
+                }
+            } catch (IOException e) {
+                for (Change change : batch) {
+                    change.committed.completeExceptionally(e);
+                }
+            }
+            batch.clear();
+        }
+    }
+
+
+    /**
+     * Writes a batch of changes. If the batch can not be written whole, the written part is cut, so the
+     * journal ends at the last saved batch again: its changes are not saved and must not be replayed. If
+     * the file was left closed by a failed rotation, it is opened again.
+     * @param batch List<Change>
+     * @throws IOException
+     */
+    private void write(List<Change> batch) throws IOException {
+        int length = 0;
+        for (Change change : batch) {
+            length += change.record.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        for (Change change : batch) {
+            buffer.put(change.record);
+        }
+        buffer.flip();
+
+        lock.lock();
+        try {
+            if ( ! channel.isOpen()) {
+                channel = open(fileName);
+            }
+            long position = channel.position();
+            try {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                if (fsync) {
+                    channel.force(false);
+                }
+            } catch (IOException e) {
+                try {
+                    channel.truncate(position);
+                    channel.position(position);
+                } catch (IOException truncateException) {
+                    e.addSuppressed(truncateException);
+                }
+                throw e;
+            }
+            recordsNumber.addAndGet(batch.size());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Returns the number of changes appended since the journal was opened or last rotated.
+     * @return Long
+     */
+    long getRecordsNumber() {
+        return recordsNumber.get();
+    }
+
+
+    /**
+     * Sets the current changes aside and starts a new file. The changes appended from now on go to the new
+     * file. If a previous compaction did not drop its rotated file, that file is kept and the current one
+     * goes on: the state saved next includes both. If the current file can not be set aside, it is opened
+     * again and goes on.
+     * @throws IOException
+     */
+    void rotate() throws IOException {
+        lock.lock();
+        try {
+            if (Files.exists(rotatedPath(fileName))) {
+                return;
+            }
+            channel.force(false);
+            channel.close();
+            try {
+                Files.move(Paths.get(fileName), rotatedPath(fileName), StandardCopyOption.ATOMIC_MOVE);
+                recordsNumber.set(0);
+            } finally {
+                channel = open(fileName); // The new file, or the current one if it was not set aside
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Drops the rotated changes. Used once the state including them has been saved.
+     * @throws IOException
+     */
+    void dropRotated() throws IOException {
+        Files.deleteIfExists(rotatedPath(fileName));
+    }
+
+
+    /**
+     * Returns the path of the rotated file of a journal.
+     * @param fileName String
+     * @return Path
+     */
+    private static Path rotatedPath(String fileName) {
+        return Paths.get(fileName + ROTATED_EXTENSION);
+    }
+
+
+    /**
+     * Replays the changes of a journal in the order they were appended: first the rotated ones of an
+     * unfinished compaction, if any, and then the current ones.
+     * @param fileName String
+     * @param change Consumer<String> applies a change
+     * @return Long number of replayed changes
+     * @throws IOException
+     */
+    static long replay(String fileName, Consumer<String> change) throws IOException {
+        return replayFile(rotatedPath(fileName).toString(), change) + replayFile(fileName, change);
+    }
+
+
+    /**
+     * Replays the changes of a journal file in the order they were appended. A last change without its
+     * line end was cut while being appended (i.e. by a crash), so it is skipped.
+     * @param fileName String
+     * @param change Consumer<String> applies a change
+     * @return Long number of replayed changes
+     * @throws IOException
+     */
+    private static long replayFile(String fileName, Consumer<String> change) throws IOException {
+        long changesNumber = 0;
+        try (BufferedReader bufferedReader = new BufferedReader(new FileReader(fileName))) {
+            boolean complete = isComplete(fileName);
+            String line = bufferedReader.readLine();
+
+            while (line != null) {
+                String next = bufferedReader.readLine();
+                if ( ! line.isEmpty() && (next != null || complete)) {
+                    change.accept(line);
+                    changesNumber++;
+                }
+                line = next;
+            }
+        } catch (FileNotFoundException e) {
+            // No changes since the state was saved
+        }
+        return changesNumber;
+    }
+
+
+    /**
+     * Checks if the last change of a journal file has its line end.
+     * @param fileName String
+     * @return Boolean
+     * @throws IOException
+     */
+    private static boolean isComplete(String fileName) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(fileName, "r")) {
+            if (file.length() == 0) {
+                return true;
+            }
+            file.seek(file.length() - 1);
+            return file.read() == LINE_END.charAt(0);
+        }
+    }
+
+
+    /**
+     * Returns the journal file name.
+     * @return String
+     */
+    String getFileName() {
+        return fileName;
+    }
+}
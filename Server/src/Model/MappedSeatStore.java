@@ -0,0 +1,302 @@
+/*
+ * Type class Model.MappedSeatStore. Seat store on a binary file mapped in memory: every seat of every
+ * travel has a fixed slot on the file, so assigning a seat writes a few bytes in place, and a restart maps
+ * the file again instead of reading the seats status.
+ *
+ * The file starts with a header (magic number, format version, synced flag and epoch) and goes on with one
+ * record per travel: record size, seats number, travel ID, and then the passenger handles, as on the
+ * off-heap store. The handles are those of a passenger table saved next to the file.
+ * The file is mapped by chunks and a record never crosses a chunk; the rest of a chunk after its last
+ * record is left empty. Seats are written in the native byte order. A travel keeps its record while its
+ * seats fit on it; if they grow, it takes a new one at the end, which replaces the old one.
+ *
+ * The mapped seats reach the disk when the operating system writes them, or when they are forced by a
+ * snapshot, which saves its epoch on the header. The seats are changed only once their change is on the
+ * journal, so a forced file holds the seats of the snapshot of its epoch and some of the journaled changes
+ * after it, and replaying the journals leaves them as they were left. The seats are kept on a restart only
+ * if the last snapshot is still the one of the file epoch; if a snapshot was taken meanwhile without the
+ * file (i.e. by a run with the seats on the heap), every seat is read from the snapshot again. So is every
+ * seat of a file of the first format, whose records also held an occupancy bitmap: the file is emptied.
+ *
+ * Model.MappedSeatStore.java
+ *
+ * @version 2.0
+ * @author Pablo Sanz Alguacil
+ */
+
+package Model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+class MappedSeatStore implements SeatStore {
+    private static final int MAGIC = 0x53454154; // "SEAT"
+    private static final int FORMAT_VERSION = 2;
+    private static final int FIRST_FORMAT_VERSION = 1; //With an occupancy bitmap before the handles
+    private static final String FORMAT_ERROR = "Unknown seats file format";
+    static final String PASSENGERS_EXTENSION = ".passengers";
+    private static final int CHUNK_SIZE = 64 << 20; //bytes
+    private static final int FILE_HEADER_SIZE = 64;
+    private static final int SYNCED = 8; //Offsets on the file header
+    private static final int EPOCH = 16;
+    private static final int RECORD_HEADER_SIZE = 64; //Keeps the seats of the record aligned
+    private static final int SEATS_NUMBER = 4; //Offsets on the record header
+    private static final int ID_LENGTH = 8;
+    private static final int ID = 9;
+    private static final int MAX_ID_LENGTH = RECORD_HEADER_SIZE - ID;
+
+    private FileChannel channel;
+    private List<MappedByteBuffer> chunks;
+    private int position; //Of the next record on the last chunk
+    private Map<String, Long> records; //Positions on the file by travel ID, of the records not allocated yet
+    private PassengerTable passengers;
+    private SeatStore fallback; //For travels whose ID does not fit on a record
+    private boolean synced; //On the expected epoch when the file was mapped
+    private Set<String> newRecords; //IDs of the travels allocated on a new or rewritten record
+
+
+    /**
+     * Constructor method. Maps a seats file, creating it if it does not exist, and finds its records.
+     * @param fileName String
+     * @param epoch Long of the last snapshot (0 if there is not any)
+     * @throws IOException
+     */
+    MappedSeatStore(String fileName, long epoch) throws IOException {
+        channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        passengers = new PassengerTable(fileName + PASSENGERS_EXTENSION);
+        fallback = new HeapSeatStore(passengers);
+        chunks = new ArrayList<>();
+        records = new HashMap<>();
+        newRecords = new HashSet<>();
+
+        long size = channel.size();
+        if (size > 0 && isFirstFormat()) {
+            channel.truncate(0);
+            size = 0;
+        }
+        do {
+            chunks.add(map(chunks.size()));
+        } while ((long) chunks.size() * CHUNK_SIZE < size);
+
+        MappedByteBuffer header = chunks.get(0);
+        if (size == 0) {
+            header.putInt(0, MAGIC);
+            header.putInt(Integer.BYTES, FORMAT_VERSION);
+        } else if (header.getInt(0) != MAGIC || header.getInt(Integer.BYTES) != FORMAT_VERSION) {
+            channel.close();
+            throw new IOException(FORMAT_ERROR + ": " + fileName);
+        }
+        synced = header.getInt(SYNCED) != 0 && header.getLong(EPOCH) == epoch;
+        findRecords();
+    }
+
+
+    /**
+     * Checks if the file is of the first format, on its header.
+     * @return Boolean
+     * @throws IOException
+     */
+    private boolean isFirstFormat() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(2 * Integer.BYTES);
+        channel.read(header, 0);
+        return header.getInt(0) == MAGIC && header.getInt(Integer.BYTES) == FIRST_FORMAT_VERSION;
+    }
+
+
+    /**
+     * Maps a chunk of the file. The file grows when a new chunk is mapped.
+     * @param chunk Integer chunk number
+     * @return MappedByteBuffer
+     * @throws IOException
+     */
+    private MappedByteBuffer map(int chunk) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_WRITE, (long) chunk * CHUNK_SIZE, CHUNK_SIZE);
+    }
+
+
+    /**
+     * Walks the record headers of every chunk. Only the headers are read; the seats are read from the
+     * mapped file when they are asked. If a travel has several records, the last one holds its seats.
+     */
+    private void findRecords() {
+        for (int chunk = 0; chunk < chunks.size(); chunk++) {
+            MappedByteBuffer buffer = chunks.get(chunk);
+            position = chunk == 0 ? FILE_HEADER_SIZE : 0;
+
+            while (position + RECORD_HEADER_SIZE <= CHUNK_SIZE) {
+                int recordSize = buffer.getInt(position);
+                if (recordSize == 0) {
+                    break;
+                }
+                byte[] id = new byte[buffer.get(position + ID_LENGTH)];
+                buffer.get(position + ID, id);
+                records.put(new String(id, StandardCharsets.UTF_8), (long) chunk * CHUNK_SIZE + position);
+                position += recordSize;
+            }
+        }
+    }
+
+
+    /**
+     * Gives the seats of a travel: its record on the file if it has one with the same seats number, or
+     * where the seats fit, or else a new record at the end of the file. The seats of a record are cleared
+     * if the file is not synced with the last snapshot, as they are read again from it. Asked once per
+     * travel ID.
+     * @param travelID String
+     * @param seatsNumber Integer
+     * @return Seats
+     */
+    @Override
+    public synchronized Seats allocate(String travelID, int seatsNumber) {
+        int passengersSize = (seatsNumber + 1) * Integer.BYTES;
+        int recordSize = (RECORD_HEADER_SIZE + passengersSize + Long.BYTES - 1) & -Long.BYTES;
+
+        Long record = records.remove(travelID);
+        if (record != null) {
+            MappedByteBuffer buffer = chunks.get((int) (record / CHUNK_SIZE));
+            int recordPosition = (int) (record % CHUNK_SIZE);
+            int recordEnd = recordPosition + buffer.getInt(recordPosition);
+            if (buffer.getInt(recordPosition + SEATS_NUMBER) == seatsNumber) {
+                if ( ! synced) {
+                    clear(buffer, recordPosition + RECORD_HEADER_SIZE, recordEnd);
+                }
+                return seats(buffer, recordPosition, seatsNumber);
+            }
+            if (recordPosition + recordSize <= recordEnd) { //The seats fit on the record, which is rewritten
+                unsync();
+                newRecords.add(travelID);
+                buffer.putInt(recordPosition + SEATS_NUMBER, seatsNumber);
+                clear(buffer, recordPosition + RECORD_HEADER_SIZE, recordEnd);
+                return seats(buffer, recordPosition, seatsNumber);
+            }
+        }
+        newRecords.add(travelID);
+
+        byte[] id = travelID.getBytes(StandardCharsets.UTF_8);
+        if (id.length > MAX_ID_LENGTH || recordSize > CHUNK_SIZE) {
+            return fallback.allocate(travelID, seatsNumber);
+        }
+        unsync();
+        if (position + recordSize > CHUNK_SIZE) {
+            try {
+                chunks.add(map(chunks.size()));
+            } catch (IOException e) {
+                return fallback.allocate(travelID, seatsNumber);
+            }
+            position = 0;
+        }
+
+        //The record size goes last: a record cut by a crash is not found again
+        MappedByteBuffer buffer = chunks.get(chunks.size() - 1);
+        int recordPosition = position;
+        clear(buffer, recordPosition + Integer.BYTES, recordPosition + recordSize);
+        buffer.putInt(recordPosition + SEATS_NUMBER, seatsNumber);
+        buffer.put(recordPosition + ID_LENGTH, (byte) id.length);
+        buffer.put(recordPosition + ID, id);
+        buffer.putInt(recordPosition, recordSize);
+        position += recordSize;
+        return seats(buffer, recordPosition, seatsNumber);
+    }
+
+
+    /**
+     * Marks the file as not synced before a record is written. A record cut by a crash, or not filled yet
+     * from the saved status, is then never taken as the seats of its travel: until the next force, a
+     * restart reads every seat again.
+     */
+    private void unsync() {
+        MappedByteBuffer header = chunks.get(0);
+        if (header.getInt(SYNCED) != 0) {
+            header.putInt(SYNCED, 0);
+        }
+    }
+
+
+    /**
+     * Clears a region of a chunk.
+     * @param buffer MappedByteBuffer
+     * @param from Integer first byte
+     * @param to Integer byte after the last one
+     */
+    private static void clear(MappedByteBuffer buffer, int from, int to) {
+        for (int i = from; i < to; i++) {
+            buffer.put(i, (byte) 0);
+        }
+    }
+
+
+    /**
+     * Returns the seats of a record.
+     * @param buffer MappedByteBuffer chunk of the record
+     * @param recordPosition Integer
+     * @param seatsNumber Integer
+     * @return Seats
+     */
+    private static Seats seats(MappedByteBuffer buffer, int recordPosition, int seatsNumber) {
+        return new OffHeapSeatStore.OffHeapSeats(buffer, recordPosition + RECORD_HEADER_SIZE, seatsNumber);
+    }
+
+
+    /**
+     * Returns the table of the passenger handles held by the seats, saved next to the seats file.
+     * @return PassengerTable
+     */
+    @Override
+    public PassengerTable getPassengers() {
+        return passengers;
+    }
+
+
+    /**
+     * Checks if the file was synced on a previous run, with the last snapshot.
+     * @return Boolean
+     */
+    @Override
+    public synchronized boolean holdsSeats() {
+        return synced;
+    }
+
+
+    /**
+     * Checks if the file was synced on a previous run, with the last snapshot, and held the record of a
+     * travel.
+     * @param travelID String
+     * @return Boolean
+     */
+    @Override
+    public synchronized boolean holdsSeats(String travelID) {
+        return synced && ! newRecords.contains(travelID);
+    }
+
+
+    /**
+     * Forces the passenger handles and then the seats to the disk, and marks the file as synced with the
+     * snapshot of an epoch.
+     * @param epoch Long
+     * @throws IOException
+     */
+    @Override
+    public synchronized void force(long epoch) throws IOException {
+        passengers.force();
+        for (MappedByteBuffer chunk : chunks) {
+            chunk.force();
+        }
+        MappedByteBuffer header = chunks.get(0);
+        header.putLong(EPOCH, epoch);
+        header.putInt(SYNCED, 1);
+        header.force();
+        synced = true;
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Type class Model.OffHeapSeatStore. Seat store out of the Java heap, for catalogues whose seats would
+ * take most of the heap: the garbage collector neither copies nor scans them. Each travel keeps only a
+ * small object pointing to its region.
+ *
+ * The seats are carved out of large direct buffers (native memory, counted against
+ * -XX:MaxDirectMemorySize) and changed through VarHandle views, with the same atomic operations as the
+ * heap store. A region holds the passenger handles, which are also the occupancy of the seats. Regions are
+ * never freed: travels stay loaded while the server runs.
+ *
+ * Model.OffHeapSeatStore.java
+ *
+ * @version 2.0
+ * @author Pablo Sanz Alguacil
+ */
+
+package Model;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+class OffHeapSeatStore implements SeatStore {
+    private static final int CHUNK_SIZE = 64 << 20; //bytes
+    private static final VarHandle INTS = MethodHandles.byteBufferViewVarHandle(int[].class,
+            ByteOrder.nativeOrder());
+
+    private PassengerTable passengers;
+    private ByteBuffer chunk; //Where the next regions are carved, guarded by this store
+    private int position;
+
+
+    /**
+     * Constructor method.
+     */
+    OffHeapSeatStore() {
+        passengers = new PassengerTable();
+    }
+
+
+    /**
+     * Seats of a travel on a region of a chunk, out of the heap or mapped from a file (see
+     * Model.MappedSeatStore). Offsets are in bytes from the start of the chunk. As on the heap store, a
+     * seat is occupied while it holds a handle.
+     */
+    static class OffHeapSeats implements Seats {
+        private final ByteBuffer chunk;
+        private final int passengers;
+        private final int seatsNumber;
+
+        OffHeapSeats(ByteBuffer chunk, int passengers, int seatsNumber) {
+            this.chunk = chunk;
+            this.passengers = passengers;
+            this.seatsNumber = seatsNumber;
+        }
+
+        @Override
+        public int get(int seat) {
+            return (int) INTS.getVolatile(chunk, passengers + seat * Integer.BYTES);
+        }
+
+        @Override
+        public boolean assign(int seat, int passenger) {
+            return INTS.compareAndSet(chunk, passengers + seat * Integer.BYTES, PassengerTable.NONE, passenger);
+        }
+
+        @Override
+        public boolean release(int seat) {
+            return (int) INTS.getAndSet(chunk, passengers + seat * Integer.BYTES, PassengerTable.NONE)
+                    != PassengerTable.NONE;
+        }
+
+        @Override
+        public boolean isOccupied(int seat) {
+            return get(seat) != PassengerTable.NONE;
+        }
+
+        @Override
+        public int countOccupied() {
+            int occupied = 0;
+            for (int seat = 1; seat <= seatsNumber; seat++) {
+                if (get(seat) != PassengerTable.NONE) {
+                    occupied++;
+                }
+            }
+            return occupied;
+        }
+    }
+
+
+    /**
+     * Carves the seats of a travel out of the current chunk, starting a new one when it is full. Direct
+     * buffers start zeroed, so every seat is free.
+     * @param travelID String
+     * @param seatsNumber Integer
+     * @return Seats
+     */
+    @Override
+    public synchronized Seats allocate(String travelID, int seatsNumber) {
+        int passengersSize = (seatsNumber + 1) * Integer.BYTES;
+        int size = (passengersSize + Long.BYTES - 1) & -Long.BYTES; //Next region stays aligned
+
+        if (chunk == null || position + size > chunk.capacity()) {
+            //Atomic accesses need aligned addresses
+            chunk = ByteBuffer.allocateDirect(Math.max(CHUNK_SIZE, size) + Long.BYTES).alignedSlice(Long.BYTES);
+            position = 0;
+        }
+        Seats seats = new OffHeapSeats(chunk, position, seatsNumber);
+        position += size;
+        return seats;
+    }
+
+
+    /**
+     * Returns the table of the passenger handles held by the seats.
+     * @return PassengerTable
+     */
+    @Override
+    public PassengerTable getPassengers() {
+        return passengers;
+    }
+}
@@ -12,7 +12,6 @@ package Model;
 import java.io.PrintWriter;
 import java.util.NoSuchElementException;
 import java.util.Objects;
-import java.util.Scanner;
 
 public class Passenger {
     private String dni;
@@ -41,10 +40,10 @@ public class Passenger {
      * @param line String
      */
     public Passenger(String line) throws NoSuchElementException{
-        Scanner scanner = new Scanner(line).useDelimiter(ELEMENTS_SEPARATOR);
-        this.dni = scanner.next();
-        this.name = scanner.next();
-        this.surname = scanner.next();
+        Fields fields = new Fields(line, ELEMENTS_SEPARATOR);
+        this.dni = fields.next();
+        this.name = fields.next();
+        this.surname = fields.next();
     }
 
 
@@ -100,14 +99,12 @@ public class Passenger {
 
 
     /**
-     * Overwrited hashCode.
+     * Overwrited hashCode. As equals, it depends on the DNI only.
      * @return Integer
      */
     @Override
     public int hashCode() {
-        int result = 23;
-        result = 19 * result + name.hashCode() + name.hashCode();
-        return 19 * result + dni.hashCode();
+        return 19 * 23 + dni.hashCode();
     }
 
 
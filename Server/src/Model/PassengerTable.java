@@ -0,0 +1,245 @@
+/*
+ * Type class Model.PassengerTable. Gives every passenger DNI a small integer handle, so the seats of the
+ * travels hold an int instead of a DNI String each. Resolving the DNI of a handle is an array lookup.
+ *
+ * Spanish DNIs (8 digits and a capital control letter) are looked up packed on a long; any other document
+ * is looked up as it is. The DNI of a handle is kept as it was given, or, for packed DNIs read from the
+ * table file, decoded the first time it is asked. A handle is kept once given (a passenger booking again gets the same one), so the table
+ * grows with the different passengers ever seen, not with the seats.
+ *
+ * A table may be saved on a file, so the handles are the same after a restart (i.e. for seats kept on a
+ * file): the DNIs are appended one per line in handle order as they get their handles.
+ *
+ * Model.PassengerTable.java
+ *
+ * @version 2.0
+ * @author Pablo Sanz Alguacil
+ */
+
+package Model;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+class PassengerTable {
+    static final int NONE = 0; //Handle of no passenger (i.e. a free seat)
+    private static final long NOT_PACKED = -1;
+    private static final int DNI_DIGITS = 8;
+    private static final int LETTERS = 'Z' - 'A' + 1;
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final String LINE_END = "\n";
+
+    private Map<Long, Integer> packedHandles; //By packed DNI
+    private Map<String, Integer> otherHandles; //By DNI, for the documents which can not be packed
+    private volatile long[] packed; //By handle
+    private volatile String[] dnis; //By handle, null for packed DNIs not decoded yet
+    private int size; //Handles given, guarded by this table
+    private FileChannel file; //Where the DNIs are appended, null if the table is not saved
+    private Charset charset;
+
+
+    /**
+     * Constructor method.
+     */
+    PassengerTable() {
+        packedHandles = new ConcurrentHashMap<>();
+        otherHandles = new ConcurrentHashMap<>();
+        packed = new long[INITIAL_CAPACITY];
+        dnis = new String[INITIAL_CAPACITY];
+        size = 1; //The handle 0 is NONE
+    }
+
+
+    /**
+     * Constructor method. Opens a table saved on a file, creating the file if it does not exist; the DNIs
+     * get again the handles they had. A last DNI without its line end (cut by a crash) is dropped.
+     * @param fileName String
+     * @throws IOException
+     */
+    PassengerTable(String fileName) throws IOException {
+        this();
+        charset = Charset.defaultCharset();
+        file = FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+
+        long length = 0;
+        BufferedReader reader = new BufferedReader(new InputStreamReader(Channels.newInputStream(file), charset));
+        String dni = reader.readLine();
+        while (dni != null) {
+            String next = reader.readLine();
+            if (next == null && ! endsLine(file)) {
+                break;
+            }
+            length += (dni + LINE_END).getBytes(charset).length;
+            long key = pack(dni);
+            if (key == NOT_PACKED) {
+                otherHandles.put(dni, put(NOT_PACKED, dni));
+            } else {
+                packedHandles.put(key, put(key, null));
+            }
+            dni = next;
+        }
+        file.truncate(length);
+        file.position(length);
+    }
+
+
+    /**
+     * Checks if a file ends with a line end.
+     * @param file FileChannel
+     * @return Boolean
+     * @throws IOException
+     */
+    private static boolean endsLine(FileChannel file) throws IOException {
+        if (file.size() == 0) {
+            return false;
+        }
+        ByteBuffer character = ByteBuffer.allocate(1);
+        file.read(character, file.size() - 1);
+        return character.get(0) == LINE_END.charAt(0);
+    }
+
+
+    /**
+     * Returns the handle of a DNI, giving it a new one the first time.
+     * @param dni String
+     * @return Integer
+     */
+    int handle(String dni) {
+        long key = pack(dni);
+        if (key == NOT_PACKED) {
+            return otherHandles.computeIfAbsent(dni, other -> add(NOT_PACKED, other));
+        }
+        return packedHandles.computeIfAbsent(key, packedDni -> add(packedDni, dni));
+    }
+
+
+    /**
+     * Returns the DNI of a handle, or null for NONE. A packed DNI read from the file is decoded once and
+     * kept; if the arrays grow meanwhile it may be decoded again, which gives the same DNI.
+     * @param handle Integer
+     * @return String
+     */
+    String dni(int handle) {
+        if (handle == NONE) {
+            return null;
+        }
+        //Arrays are read after the handle: a published handle is always on them
+        String[] dnis = this.dnis;
+        String dni = dnis[handle];
+        if (dni == null) {
+            dni = unpack(packed[handle]);
+            dnis[handle] = dni;
+        }
+        return dni;
+    }
+
+
+    /**
+     * Gives the next handle to a DNI, saving it first if the table is saved on a file.
+     * @param key Long packed DNI, or NOT_PACKED
+     * @param dni String
+     * @return Integer
+     */
+    private synchronized int add(long key, String dni) {
+        if (file != null) {
+            ByteBuffer line = ByteBuffer.wrap((dni + LINE_END).getBytes(charset));
+            try {
+                while (line.hasRemaining()) {
+                    file.write(line);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return put(key, dni);
+    }
+
+
+    /**
+     * Puts the next handle on the arrays. The arrays are replaced when they grow, and written before being
+     * published, so readers never take a lock.
+     * @param key Long packed DNI, or NOT_PACKED
+     * @param dni String, or null to decode it from the packed DNI when it is asked
+     * @return Integer
+     */
+    private synchronized int put(long key, String dni) {
+        int handle = size++;
+        long[] packed = this.packed;
+        String[] dnis = this.dnis;
+
+        if (handle == packed.length) {
+            packed = Arrays.copyOf(packed, packed.length * 2);
+            dnis = Arrays.copyOf(dnis, dnis.length * 2);
+        }
+        packed[handle] = key;
+        dnis[handle] = dni;
+        this.dnis = dnis;
+        this.packed = packed;
+        return handle;
+    }
+
+
+    /**
+     * Forces the saved DNIs to the disk, if the table is saved on a file.
+     * @throws IOException
+     */
+    void force() throws IOException {
+        if (file != null) {
+            file.force(false);
+        }
+    }
+
+
+    /**
+     * Packs a Spanish DNI as its number times the letters plus its letter.
+     * @param dni String
+     * @return Long packed DNI, or NOT_PACKED if it is another kind of document
+     */
+    static long pack(String dni) {
+        if (dni.length() != DNI_DIGITS + 1) {
+            return NOT_PACKED;
+        }
+        long number = 0;
+        for (int i = 0; i < DNI_DIGITS; i++) {
+            char digit = dni.charAt(i);
+            if (digit < '0' || digit > '9') {
+                return NOT_PACKED;
+            }
+            number = number * 10 + (digit - '0');
+        }
+        char letter = dni.charAt(DNI_DIGITS);
+        if (letter < 'A' || letter > 'Z') {
+            return NOT_PACKED;
+        }
+        return number * LETTERS + (letter - 'A');
+    }
+
+
+    /**
+     * Unpacks a DNI packed by pack.
+     * @param key Long
+     * @return String
+     */
+    static String unpack(long key) {
+        char[] dni = new char[DNI_DIGITS + 1];
+        dni[DNI_DIGITS] = (char) ('A' + key % LETTERS);
+        long number = key / LETTERS;
+        for (int i = DNI_DIGITS - 1; i >= 0; i--) {
+            dni[i] = (char) ('0' + number % 10);
+            number /= 10;
+        }
+        return new String(dni);
+    }
+}
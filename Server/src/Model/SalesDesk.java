@@ -12,13 +12,45 @@ package Model;
 import Internationalization.Location;
 import javax.swing.*;
 import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
+import java.util.Timer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.concurrent.locks.ReentrantLock;
 
 
 public class SalesDesk {
     private Location location;
-    private static Set<Passenger> passengers;
-    private static Set<Travel> travels;
+    private static volatile Map<String, Passenger> passengers; //By DNI
+    private static volatile Map<String, Travel> travels; //By ID
+    private static volatile NavigableMap<Long, List<Travel>> travelsPerDay; //By epoch day, sorted by date
+    //By origin, by destiny and by day
+    private static volatile Map<String, Map<String, NavigableMap<Long, List<Travel>>>> travelsPerRoute;
+    private static volatile Map<String, Set<Booking>> bookings; //By DNI
+    private static SeatStore seatStore;
+    private static PassengerTable seatPassengers; //Handles held by the seats
+    private static final ReentrantLock[] passengerLocks;
+    private static final ReentrantLock[] travelLocks;
+    private static volatile boolean loaded;
+    private static final ReentrantLock storageLock = new ReentrantLock();
+    private static Journal travelsJournal;
+    private static Journal passengersJournal;
+    private static final AtomicBoolean compaction = new AtomicBoolean();
+    private static volatile Thread compactor; //Of the last compaction started
+    private static long compactionRecords;
+    private static long snapshotEpoch; //Of the last snapshot, 0 if there is not any
+    private static Timer snapshotTimer;
     private static final String ELEMENTS_SEPARATOR = ",";
     private static final String COLON = ": ";
     private static final String DNI_SEAT_SEPARATOR = "-";
@@ -26,19 +58,489 @@ public class SalesDesk {
     private static final String PASSENGERS_FILE_PATH = "storage/data/passengers.csv";
     private static final String TRAVELS_FILE_PATH = "storage/data/travels.csv";
     private static final String TRAVELS_STATUS_FILE_PATH = "storage/data/status.csv";
+    private static final String TRAVELS_JOURNAL_FILE_PATH = "storage/data/status.journal";
+    private static final String PASSENGERS_JOURNAL_FILE_PATH = "storage/data/passengers.journal";
+    private static final String SNAPSHOT_FILE_PATH = "storage/data/snapshot.bin";
+    private static final String SEATS_FILE_PATH = "storage/data/seats.bin";
+    private static final String TEMPORARY_FILE_EXTENSION = ".tmp";
+    private static final String SEAT_ASSIGNED = "A";
+    private static final String SEAT_DEALLOCATED = "D";
+    private static final String PASSENGER_SAVED = "P";
+    private static final String PASSENGER_DELETED = "X"; // Tombstone
+    private static final String JOURNAL_FSYNC_PARAMETER = "journal_fsync";
+    private static final String JOURNAL_FSYNC_NEVER = "never";
+    private static final String JOURNAL_BATCH_SIZE_PARAMETER = "journal_batch_size";
+    private static final String JOURNAL_BATCH_WINDOW_PARAMETER = "journal_batch_window";
+    private static final int DEFAULT_JOURNAL_BATCH_SIZE = 512;
+    private static final int DEFAULT_JOURNAL_BATCH_WINDOW = 0; //miliseconds
+    private static final String JOURNAL_COMPACTION_PARAMETER = "journal_compaction_records";
+    private static final int DEFAULT_JOURNAL_COMPACTION = 10000;
+    private static final String SNAPSHOT_PERIOD_PARAMETER = "snapshot_period";
+    private static final int DEFAULT_SNAPSHOT_PERIOD = 600; //seconds
+    private static final String COMPACTOR_NAME = "Snapshot compactor";
+    private static final int PASSENGER_LOCKS_NUMBER = 64;
+    private static final int TRAVEL_LOCKS_NUMBER = 64;
+    private static final String SEAT_STORE_PARAMETER = "seat_store";
+    public static final long NOT_CHANGED = 0; //Version returned when a seat is not changed
+
+    static {
+        passengerLocks = new ReentrantLock[PASSENGER_LOCKS_NUMBER];
+        for (int i = 0; i < passengerLocks.length; i++) {
+            passengerLocks[i] = new ReentrantLock();
+        }
+        travelLocks = new ReentrantLock[TRAVEL_LOCKS_NUMBER];
+        for (int i = 0; i < travelLocks.length; i++) {
+            travelLocks[i] = new ReentrantLock();
+        }
+    }
+    private static final long PARALLEL_LOAD_SIZE = 1 << 20; //bytes, files parsed by chunks in parallel
+    private static final String LOADED = "Loaded ";
+    private static final String JOURNALS = "journals";
+    private static final String LOADED_TRAVELS = " travels, ";
+    private static final String LOADED_PASSENGERS = " passengers";
+    private static final String MILISECONDS = " ms";
 
     /**
-     * Constructor method. Creates an office and loads the saved statuses of passengers and travels.
+     * Constructor method. Creates an office. The saved statuses of passengers and travels are loaded
+     * when the first office is created, and shared by all of them.
      * @param location Location
+     * @param config Properties server configuration
      */
-    public SalesDesk(Location location) {
-        //Con los synchronized Sets se asegura la exclusión mutua al acceder a las Colecciones.
-        passengers = Collections.synchronizedSet(new HashSet<Passenger>());
-        travels =  Collections.synchronizedSet(new HashSet<Travel>());
+    public SalesDesk(Location location, Properties config) {
         this.location = location;
-        readTravels(TRAVELS_FILE_PATH);
-        readPassengers(PASSENGERS_FILE_PATH);
-        readTravelsStatus(TRAVELS_STATUS_FILE_PATH);
+        load(config);
+    }
+
+
+    /**
+     * Loads the saved statuses of passengers and travels: the last snapshot (or the passengers and seats
+     * status files if there is not any snapshot yet) and then the passenger and seat changes journals
+     * appended after it. The files are parsed at the same time, each one on its own task, and only the
+     * seats wait for the travels. Once everything is loaded the passengers and travels are published at
+     * once; the offices created meanwhile wait for them.
+     * @param config Properties
+     */
+    private void load(Properties config) {
+        storageLock.lock();
+        try {
+            if (loaded) {
+                return;
+            }
+            long start = System.nanoTime();
+            snapshotEpoch = readSnapshotEpoch(SNAPSHOT_FILE_PATH);
+            seatStore = openSeatStore(config);
+            seatPassengers = seatStore.getPassengers();
+            //Concurrent Maps: lookups by DNI and ID at once; reads never block and are never blocked by
+            //the writes.
+            Map<String, Passenger> loadedPassengers = new ConcurrentHashMap<>();
+            Map<String, Travel> loadedTravels = new ConcurrentHashMap<>();
+
+            CompletableFuture<Map<String, Travel>> travelsLoad = CompletableFuture.supplyAsync(() ->
+                    timed(TRAVELS_FILE_PATH, () -> {
+                        readTravels(TRAVELS_FILE_PATH, loadedTravels);
+                        return loadedTravels;
+                    }));
+            CompletableFuture<Void> statusLoad;
+            if (Snapshot.exists(SNAPSHOT_FILE_PATH)) {
+                statusLoad = CompletableFuture.runAsync(() -> timed(SNAPSHOT_FILE_PATH, () ->
+                        readSnapshot(SNAPSHOT_FILE_PATH, loadedPassengers, travelsLoad)));
+            } else {
+                statusLoad = CompletableFuture.allOf(
+                        CompletableFuture.runAsync(() -> timed(PASSENGERS_FILE_PATH, () ->
+                                readPassengers(PASSENGERS_FILE_PATH, loadedPassengers))),
+                        CompletableFuture.runAsync(() -> {
+                            Map<String, Travel> travelsToFill = travelsToFill(travelsLoad.join());
+                            if ( ! travelsToFill.isEmpty()) {
+                                timed(TRAVELS_STATUS_FILE_PATH, () ->
+                                        readTravelsStatus(TRAVELS_STATUS_FILE_PATH, travelsToFill));
+                            }
+                        }));
+            }
+            travelsLoad.join();
+            statusLoad.join();
+
+            long journalRecords = timed(JOURNALS, () ->
+                    replayPassengersJournal(PASSENGERS_JOURNAL_FILE_PATH, loadedPassengers)
+                            + replayTravelsJournal(TRAVELS_JOURNAL_FILE_PATH, loadedTravels));
+            forceSeats(); //The seats kept by the store are complete from now on
+
+            passengers = loadedPassengers;
+            travels = loadedTravels;
+            travelsPerDay = travelsPerDay(loadedTravels.values());
+            travelsPerRoute = travelsPerRoute(loadedTravels.values());
+            bookings = bookings(loadedTravels.values());
+            loaded = true;
+            System.out.println(LOADED + loadedTravels.size() + LOADED_TRAVELS + loadedPassengers.size()
+                    + LOADED_PASSENGERS + COLON + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+                    + MILISECONDS);
+
+            openJournals(config, journalRecords);
+        } finally {
+            storageLock.unlock();
+        }
+    }
+
+
+    /**
+     * Opens the seat store of the configuration. If the seats file can not be opened, the seats are kept
+     * on the heap.
+     * @param config Properties
+     * @return SeatStore
+     */
+    private SeatStore openSeatStore(Properties config) {
+        String mode = config.getProperty(SEAT_STORE_PARAMETER, SeatStore.HEAP);
+        try {
+            return timed(SEATS_FILE_PATH, () -> {
+                try {
+                    return SeatStore.of(mode, SEATS_FILE_PATH, snapshotEpoch);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            System.out.println(location.getLabel(location.ERROR_READING_STATUS) + COLON + e.getMessage());
+            return new HeapSeatStore();
+        }
+    }
+
+
+    /**
+     * Reads the epoch of the last snapshot. An unreadable snapshot is taken as epoch 0, so the seats kept
+     * by the seat store with a snapshot are not used.
+     * @param file String
+     * @return Long
+     */
+    private long readSnapshotEpoch(String file) {
+        try {
+            return Snapshot.epoch(file);
+        } catch (IOException e) {
+            System.out.println(location.getLabel(location.ERROR_READING_STATUS) + COLON + e.getMessage());
+            return 0;
+        }
+    }
+
+
+    /**
+     * Returns the loaded travels whose seats have to be read from the saved status: all of them but the
+     * ones whose seats were kept by the seat store.
+     * @param loadedTravels Map<String, Travel>
+     * @return Map<String, Travel>
+     */
+    private static Map<String, Travel> travelsToFill(Map<String, Travel> loadedTravels) {
+        if ( ! seatStore.holdsSeats()) {
+            return loadedTravels;
+        }
+        Map<String, Travel> travelsToFill = new HashMap<>();
+        for (Travel travel : loadedTravels.values()) {
+            if ( ! seatStore.holdsSeats(travel.getId())) {
+                travelsToFill.put(travel.getId(), travel);
+            }
+        }
+        return travelsToFill;
+    }
+
+
+    /**
+     * Forces the seats kept by the seat store to the disk, with the epoch of the last snapshot.
+     * @return Boolean false if they could not be forced
+     */
+    private boolean forceSeats() {
+        try {
+            seatStore.force(snapshotEpoch);
+            return true;
+        } catch (IOException e) {
+            System.out.println(location.getLabel(location.ERROR_SAVING_TRAVELS_STATUS) + COLON + e.getMessage());
+            return false;
+        }
+    }
+
+
+    /**
+     * Runs a load and prints how long it took.
+     * @param name String loaded file
+     * @param load Supplier<T>
+     * @return T the load result
+     */
+    private static <T> T timed(String name, Supplier<T> load) {
+        long start = System.nanoTime();
+        T result = load.get();
+        System.out.println(LOADED + name + COLON + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+                + MILISECONDS);
+        return result;
+    }
+
+
+    /**
+     * Runs a load and prints how long it took.
+     * @param name String loaded file
+     * @param load Runnable
+     */
+    private static void timed(String name, Runnable load) {
+        timed(name, () -> {
+            load.run();
+            return null;
+        });
+    }
+
+
+    /**
+     * Reads the passengers and seats status from a snapshot. The passengers are read while the travels
+     * are still being loaded; the seats wait for them, and are skipped for the travels whose seats were
+     * kept by the seat store.
+     * @param file String
+     * @param loadedPassengers Map<String, Passenger> where the passengers are added by DNI
+     * @param travelsLoad CompletableFuture<Map<String, Travel>> travels by ID
+     */
+    public void readSnapshot(String file, Map<String, Passenger> loadedPassengers,
+                             CompletableFuture<Map<String, Travel>> travelsLoad) {
+        try {
+            Snapshot.load(file, loadedPassengers, () -> travelsToFill(travelsLoad.join()), seatPassengers);
+        } catch (IOException e) {
+            System.out.println(location.getLabel(location.ERROR_READING_STATUS) + COLON + e.getMessage());
+        }
+    }
+
+
+    /**
+     * Opens the passenger and seat changes journals once the saved statuses are loaded, and starts
+     * the periodic snapshots. If the replayed journals are already long, a snapshot is taken at once.
+     * @param config Properties
+     * @param journalRecords Long number of replayed changes
+     */
+    private void openJournals(Properties config, long journalRecords) {
+        try {
+            boolean fsync = ! JOURNAL_FSYNC_NEVER.equalsIgnoreCase(config.getProperty(JOURNAL_FSYNC_PARAMETER));
+            int batchSize = Integer.parseInt(config.getProperty(JOURNAL_BATCH_SIZE_PARAMETER,
+                    String.valueOf(DEFAULT_JOURNAL_BATCH_SIZE)));
+            int batchWindow = Integer.parseInt(config.getProperty(JOURNAL_BATCH_WINDOW_PARAMETER,
+                    String.valueOf(DEFAULT_JOURNAL_BATCH_WINDOW)));
+            compactionRecords = Long.parseLong(config.getProperty(JOURNAL_COMPACTION_PARAMETER,
+                    String.valueOf(DEFAULT_JOURNAL_COMPACTION)));
+            int snapshotPeriod = Integer.parseInt(config.getProperty(SNAPSHOT_PERIOD_PARAMETER,
+                    String.valueOf(DEFAULT_SNAPSHOT_PERIOD)));
+
+            passengersJournal = new Journal(PASSENGERS_JOURNAL_FILE_PATH, fsync, batchSize, batchWindow);
+            travelsJournal = new Journal(TRAVELS_JOURNAL_FILE_PATH, fsync, batchSize, batchWindow);
+
+            if (journalRecords >= compactionRecords || ! Snapshot.exists(SNAPSHOT_FILE_PATH)) {
+                startCompaction();
+            }
+            if (snapshotPeriod > 0) {
+                snapshotTimer = new Timer(true);
+                snapshotTimer.scheduleAtFixedRate(new TimerTask() {
+                    @Override
+                    public void run() {
+                        if (passengersJournal.getRecordsNumber() + travelsJournal.getRecordsNumber() > 0) {
+                            startCompaction();
+                        }
+                    }
+                }, snapshotPeriod * 1000L, snapshotPeriod * 1000L);
+            }
+        } catch (IOException | NumberFormatException e) {
+            System.out.println(location.getLabel(location.ERROR_SAVING_TRAVELS_STATUS));
+        }
+    }
+
+
+    /**
+     * Appends a seat change to the journal.
+     * @param change String SEAT_ASSIGNED or SEAT_DEALLOCATED
+     * @param travel Travel
+     * @param seat Integer
+     * @param dni String (null on deallocations)
+     * @return Boolean false if the change could not be saved
+     */
+    private boolean journalSeatChange(String change, Travel travel, int seat, String dni) {
+        String record = change + ELEMENTS_SEPARATOR + travel.getId() + ELEMENTS_SEPARATOR + seat;
+        if (dni != null) {
+            record += ELEMENTS_SEPARATOR + dni;
+        }
+
+        if (travelsJournal == null) { //The journal could not be opened
+            System.out.println(location.getLabel(location.ERROR_SAVING_TRAVELS_STATUS));
+            return false;
+        }
+        try {
+            travelsJournal.append(record);
+        } catch (IOException e) {
+            System.out.println(location.getLabel(location.ERROR_SAVING_TRAVELS_STATUS));
+            return false;
+        }
+
+        compactIfNeeded();
+        return true;
+    }
+
+
+    /**
+     * Appends a passenger change to the journal. Only the changed passenger is saved.
+     * @param record String
+     * @return Boolean false if the change could not be saved
+     */
+    private boolean journalPassengerChange(String record) {
+        if (passengersJournal == null) { //The journal could not be opened
+            System.out.println(location.getLabel(location.ERROR_SAVING_PASSENGERS));
+            return false;
+        }
+        try {
+            passengersJournal.append(record);
+        } catch (IOException e) {
+            System.out.println(location.getLabel(location.ERROR_SAVING_PASSENGERS));
+            return false;
+        }
+
+        compactIfNeeded();
+        return true;
+    }
+
+
+    /**
+     * Starts a compaction when the journals have grown over the compaction size. Nothing is compacted if
+     * one of the journals could not be opened.
+     */
+    private void compactIfNeeded() {
+        if (passengersJournal != null && travelsJournal != null
+                && passengersJournal.getRecordsNumber() + travelsJournal.getRecordsNumber() >= compactionRecords) {
+            startCompaction();
+        }
+    }
+
+
+    /**
+     * Starts a compaction in background, unless one is already running.
+     */
+    private void startCompaction() {
+        if (compaction.compareAndSet(false, true)) {
+            Thread thread = new Thread(this::compact, COMPACTOR_NAME);
+            thread.setDaemon(true);
+            compactor = thread;
+            thread.start();
+        }
+    }
+
+
+    /**
+     * Waits for the compaction running in background, if any (i.e. the snapshot taken after the first load
+     * of the saved statuses).
+     * @throws InterruptedException
+     */
+    static void awaitCompaction() throws InterruptedException {
+        Thread thread = compactor;
+        if (thread != null) {
+            thread.join();
+        }
+    }
+
+
+    /**
+     * Folds the journals into a new snapshot. The journals are rotated first, so passengers and seats keep
+     * changing while the snapshot is written; the changes made meanwhile are on the new journals, and
+     * replaying them over the snapshot leaves them as they were.
+     */
+    private void compact() {
+        try {
+            rotateJournals();
+            long epoch = snapshotEpoch + 1;
+            Snapshot.save(SNAPSHOT_FILE_PATH, epoch, passengers.values(), travels.values(), seatPassengers);
+            snapshotEpoch = epoch;
+            seatStore.force(epoch); //The rotated seat changes are dropped once the kept seats include them
+            passengersJournal.dropRotated();
+            travelsJournal.dropRotated();
+        } catch (IOException e) {
+            System.out.println(location.getLabel(location.ERROR_SAVING_TRAVELS_STATUS) + COLON + e.getMessage());
+        } finally {
+            compaction.set(false);
+        }
+    }
+
+
+    /**
+     * Rotates the journals with every travel locked. A seat change is journaled before it is made, so
+     * the rotation waits for the changes being made: every change on the rotated journal is then made
+     * before the snapshot reads the seats.
+     * @throws IOException
+     */
+    private static void rotateJournals() throws IOException {
+        for (ReentrantLock lock : travelLocks) {
+            lock.lock();
+        }
+        try {
+            passengersJournal.rotate();
+            travelsJournal.rotate();
+        } finally {
+            for (ReentrantLock lock : travelLocks) {
+                lock.unlock();
+            }
+        }
+    }
+
+
+    /**
+     * Replays the journal passenger changes over the loaded passengers. A saved passenger replaces the
+     * one with the same DNI and a tombstone removes it, so replaying changes already included on the
+     * passengers file does not alter it.
+     * @param file String
+     * @param loadedPassengers Map<String, Passenger>
+     * @return Long number of replayed changes
+     */
+    public long replayPassengersJournal(String file, Map<String, Passenger> loadedPassengers) {
+        try {
+            return Journal.replay(file, record -> {
+                int separator = record.indexOf(ELEMENTS_SEPARATOR);
+                try {
+                    String change = record.substring(0, separator);
+                    String element = record.substring(separator + 1);
+
+                    if (change.equals(PASSENGER_SAVED)) {
+                        Passenger passenger = new Passenger(element);
+                        loadedPassengers.put(passenger.getDni(), passenger);
+                    } else if (change.equals(PASSENGER_DELETED)) {
+                        loadedPassengers.remove(element);
+                    }
+                } catch (StringIndexOutOfBoundsException | NoSuchElementException e) {
+                    System.out.println(location.getLabel(location.ERROR_READING_A_PASSENGER));
+                }
+            });
+        } catch (IOException e) {
+            System.out.println(location.getLabel(location.ERROR_READING_PASSENGERS));
+            return 0;
+        }
+    }
+
+
+    /**
+     * Replays the journal seat changes over the loaded seats. Every change sets the seat as it was left,
+     * so replaying changes already included on the seats status file does not alter it. A change that
+     * can not be read (i.e. cut by a crash) is skipped.
+     * @param file String
+     * @param travelsByID Map<String, Travel>
+     * @return Long number of replayed changes
+     */
+    public long replayTravelsJournal(String file, Map<String, Travel> travelsByID) {
+        try {
+            return Journal.replay(file, record -> {
+                String[] elements = record.split(ELEMENTS_SEPARATOR);
+                try {
+                    Travel travel = travelsByID.get(elements[1]);
+                    int seat = Integer.parseInt(elements[2]);
+                    if (travel == null || seat <= 0 || seat > travel.getSeatsNumber()) {
+                        return;
+                    }
+
+                    if (elements[0].equals(SEAT_ASSIGNED)) {
+                        travel.deallocateSeat(seat);
+                        travel.assignSeat(seat, seatPassengers.handle(elements[3]));
+                    } else if (elements[0].equals(SEAT_DEALLOCATED)) {
+                        travel.deallocateSeat(seat);
+                    }
+                } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+                    System.out.println(new SeatsReadException("TRAVEL", record).getMessage());
+                }
+            });
+        } catch (IOException e) {
+            System.out.println(location.getLabel(location.ERROR_READING_STATUS));
+            return 0;
+        }
     }
 
 
@@ -48,12 +550,9 @@ public class SalesDesk {
      * @return boolean.
      */
     public boolean addPassenger (Passenger passenger) {
-        if(searchPassenger(passenger.getDni()) == null) {
-            passengers.add(passenger);
-            try {
-                savePassengers(PASSENGERS_FILE_PATH);
-            } catch (IOException e) {
-                System.out.println("Error saving passengers");
+        if(passengers.putIfAbsent(passenger.getDni(), passenger) == null) {
+            if ( ! journalPassengerChange(PASSENGER_SAVED + ELEMENTS_SEPARATOR + passenger.toString())) {
+                passengers.remove(passenger.getDni(), passenger);
                 return false;
             }
             return true;
@@ -68,12 +567,10 @@ public class SalesDesk {
      * @return boolean
      */
     public boolean deletePassenger (Passenger passenger) {
-        if(searchPassenger(passenger.getDni()) != null) {
-            passengers.remove(passenger);
-            try {
-                savePassengers(PASSENGERS_FILE_PATH);
-            } catch (IOException e) {
-                System.out.println("Error saving passengers");
+        Passenger deleted = passengers.remove(passenger.getDni());
+        if(deleted != null) {
+            if ( ! journalPassengerChange(PASSENGER_DELETED + ELEMENTS_SEPARATOR + deleted.getDni())) {
+                passengers.putIfAbsent(deleted.getDni(), deleted);
                 return false;
             }
             return true;
@@ -88,12 +585,7 @@ public class SalesDesk {
      * @return Model.Passenger
      */
     public Passenger searchPassenger (String dni){
-        for (Passenger element : passengers) {
-            if (element.getDni().equals(dni)) {
-                return element;
-            }
-        }
-        return null;
+        return dni == null ? null : passengers.get(dni);
     }
 
 
@@ -103,55 +595,247 @@ public class SalesDesk {
      * @return Travel
      */
     public Travel searchTravel(String id){
-        for (Travel element : travels) {
-            if (element.getId().equals(id)) {
-                return element;
-            }
-        }
-        return null;
+        return id == null ? null : travels.get(id);
     }
 
 
     /**
-     * Assigns the received seat to the received passenger on a travel. Returns true in case of success.
+     * Assigns the received seat to the received passenger on a travel. Returns true in case of success. The
+     * passenger gets its handle only once the seat is found free. The assignment is journaled before the
+     * seat is taken, so the seats (which may be kept on a file) never hold a change missing on the journal;
+     * the travel stays locked meanwhile, so the seat found free is still free when it is taken. The travel
+     * seats version of the change is read before the travel is unlocked, so it can be notified afterwards.
      * @param receivedTravel Model.Travel
      * @param passenger Model.Passenger
      * @param seat Integer
-     * @return boolean
+     * @return long travel seats version after the assignment, or NOT_CHANGED
      */
-    public boolean assignSeat (Travel receivedTravel, Passenger passenger, int seat){
+    public long assignSeat (Travel receivedTravel, Passenger passenger, int seat){
         Travel travel = searchTravel(receivedTravel.getId());
-        if (travel.isSeatFree(seat)){
-            Boolean success = travel.assignSeat(seat, passenger.getDni());
+        if (travel == null) {
+            return NOT_CHANGED;
+        }
+
+        ReentrantLock lock = travelLock(travel.getId());
+        lock.lock();
+        try {
+            if ( ! travel.isSeatFree(seat)) {
+                return NOT_CHANGED;
+            }
+            int handle;
             try {
-                saveTravelsStatus(TRAVELS_STATUS_FILE_PATH);
-            } catch (IOException e) {
+                handle = seatPassengers.handle(passenger.getDni());
+            } catch (UncheckedIOException e) { //The handle could not be saved
                 System.out.println(location.getLabel(location.ERROR_SAVING_TRAVELS_STATUS));
+                return NOT_CHANGED;
+            }
+            if ( ! journalSeatChange(SEAT_ASSIGNED, travel, seat, passenger.getDni())
+                    || ! travel.assignSeat(seat, handle)) {
+                return NOT_CHANGED;
             }
-            return success;
+            addBooking(bookings, passenger.getDni(), new Booking(travel.getId(), seat));
+            return travel.getVersion();
+        } finally {
+            lock.unlock();
         }
-        return false;
     }
 
 
     /**
-     * Deallocates the received seat to its passenger on the received travel.
+     * Deallocates the received seat to its passenger on the received travel. As on assignSeat, the
+     * deallocation is journaled before the seat is freed, with the travel locked.
      * @param receivedTravel Model.Travel
      * @param seat Ineger
-     * @return boolean
+     * @return long travel seats version after the deallocation, or NOT_CHANGED
      */
-    public boolean deallocateSeat(Travel receivedTravel, int seat){
+    public long deallocateSeat(Travel receivedTravel, int seat){
         Travel travel = searchTravel(receivedTravel.getId());
-        if (!travel.isSeatFree(seat)){
-            boolean success = travel.deallocateSeat(seat);
+        if (travel == null || seat <= 0 || seat > travel.getSeatsNumber()) {
+            return NOT_CHANGED;
+        }
+        return deallocateSeat(travel, seat, PassengerTable.NONE);
+    }
+
+
+    /**
+     * Deallocates a seat of a loaded travel if it is held by the expected passenger.
+     * @param travel Model.Travel loaded
+     * @param seat Integer
+     * @param expected Integer passenger handle, or PassengerTable.NONE for any passenger
+     * @return long travel seats version after the deallocation, or NOT_CHANGED
+     */
+    private long deallocateSeat(Travel travel, int seat, int expected) {
+        ReentrantLock lock = travelLock(travel.getId());
+        lock.lock();
+        try {
+            int sited = travel.whoIsSited(seat);
+            if (sited == PassengerTable.NONE || (expected != PassengerTable.NONE && sited != expected)
+                    || ! journalSeatChange(SEAT_DEALLOCATED, travel, seat, null)
+                    || ! travel.deallocateSeat(seat)) {
+                return NOT_CHANGED;
+            }
+            removeBooking(seatPassengers.dni(sited), new Booking(travel.getId(), seat));
+            return travel.getVersion();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Books a seat: saves the passenger, if it is new, and assigns the seat. If the seat can not be
+     * assigned, a passenger saved for it without other bookings is deleted again. The bookings of a
+     * passenger are made and cancelled one at a time.
+     * @param travel Model.Travel
+     * @param passenger Model.Passenger
+     * @param seat Integer
+     * @return long travel seats version after the assignment, or NOT_CHANGED
+     */
+    public long book(Travel travel, Passenger passenger, int seat){
+        ReentrantLock lock = passengerLock(passenger.getDni());
+        lock.lock();
+        try {
+            boolean added = addPassenger(passenger);
+            long version = assignSeat(travel, passenger, seat);
+            if (version != NOT_CHANGED) {
+                return version;
+            }
+            if (added && ! bookings.containsKey(passenger.getDni())) {
+                deletePassenger(passenger);
+            }
+            return NOT_CHANGED;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Cancels the booking of a seat: deallocates the seat and, if its passenger does not hold any other
+     * booking, deletes the passenger. The passenger is read before its lock is taken, so the seat is only
+     * deallocated if it still holds that passenger; if it was booked again meanwhile by another one, the
+     * cancellation is tried again with the new passenger.
+     * @param receivedTravel Model.Travel
+     * @param seat Integer
+     * @return long travel seats version after the deallocation, or NOT_CHANGED
+     */
+    public long cancel(Travel receivedTravel, int seat){
+        Travel travel = searchTravel(receivedTravel.getId());
+        if (travel == null || seat <= 0 || seat > travel.getSeatsNumber()) {
+            return NOT_CHANGED;
+        }
+
+        int sited = travel.whoIsSited(seat);
+        while (true) {
+            String dni = seatPassengers.dni(sited);
+            if (dni == null) {
+                return NOT_CHANGED;
+            }
+
+            ReentrantLock lock = passengerLock(dni);
+            lock.lock();
             try {
-                saveTravelsStatus(TRAVELS_STATUS_FILE_PATH);
-            } catch (IOException e) {
-                System.out.println(location.getLabel(location.ERROR_SAVING_TRAVELS_STATUS));
+                long version = deallocateSeat(travel, seat, sited);
+                if (version != NOT_CHANGED) {
+                    if ( ! bookings.containsKey(dni)) {
+                        deletePassenger(new Passenger(dni, null, null));
+                    }
+                    return version;
+                }
+            } finally {
+                lock.unlock();
             }
-            return success;
+
+            int current = travel.whoIsSited(seat);
+            if (current == sited) { //Not deallocated for another reason (i.e. the journal failed)
+                return NOT_CHANGED;
+            }
+            sited = current;
         }
-        return false;
+    }
+
+
+    /**
+     * Returns the bookings of a passenger, sorted by travel date and seat.
+     * @param dni String
+     * @return List<Booking>
+     */
+    public List<Booking> passengerBookings(String dni){
+        List<Booking> passengerBookings = new ArrayList<>(bookings.getOrDefault(dni, Collections.emptySet()));
+        passengerBookings.removeIf(booking -> searchTravel(booking.getTravelID()) == null);
+        passengerBookings.sort(Comparator.comparingLong((Booking booking) ->
+                searchTravel(booking.getTravelID()).getDeparture()).thenComparingInt(Booking::getSeat));
+        return passengerBookings;
+    }
+
+
+    /**
+     * Returns the lock of the bookings of a passenger. Passengers are spread on a fixed number of locks.
+     * @param dni String
+     * @return ReentrantLock
+     */
+    private static ReentrantLock passengerLock(String dni) {
+        return passengerLocks[Math.floorMod(dni.hashCode(), passengerLocks.length)];
+    }
+
+
+    /**
+     * Returns the lock of the seat changes of a travel. Travels are spread on a fixed number of locks, taken
+     * after the passenger ones.
+     * @param travelID String
+     * @return ReentrantLock
+     */
+    private static ReentrantLock travelLock(String travelID) {
+        return travelLocks[Math.floorMod(travelID.hashCode(), travelLocks.length)];
+    }
+
+
+    /**
+     * Indexes the occupied seats by passenger.
+     * @param loadedTravels Collection<Travel>
+     * @return Map<String, Set<Booking>>
+     */
+    private static Map<String, Set<Booking>> bookings(Collection<Travel> loadedTravels) {
+        Map<String, Set<Booking>> bookings = new ConcurrentHashMap<>();
+        for (Travel travel : loadedTravels) {
+            for (int seat = 1; seat <= travel.getSeatsNumber(); seat++) {
+                String dni = seatPassengers.dni(travel.whoIsSited(seat));
+                if (dni != null) {
+                    addBooking(bookings, dni, new Booking(travel.getId(), seat));
+                }
+            }
+        }
+        return bookings;
+    }
+
+
+    /**
+     * Adds a booking to a passenger.
+     * @param bookings Map<String, Set<Booking>>
+     * @param dni String
+     * @param booking Booking
+     */
+    private static void addBooking(Map<String, Set<Booking>> bookings, String dni, Booking booking) {
+        bookings.compute(dni, (passenger, held) -> {
+            if (held == null) {
+                held = ConcurrentHashMap.newKeySet();
+            }
+            held.add(booking);
+            return held;
+        });
+    }
+
+
+    /**
+     * Removes a booking of a passenger. A passenger without bookings is removed from the index.
+     * @param dni String
+     * @param booking Booking
+     */
+    private static void removeBooking(String dni, Booking booking) {
+        bookings.computeIfPresent(dni, (passenger, held) -> {
+            held.remove(booking);
+            return held.isEmpty() ? null : held;
+        });
     }
 
 
@@ -163,24 +847,45 @@ public class SalesDesk {
      */
     public Passenger whoIsSited (String travelID, int seat){
         Travel travel = searchTravel(travelID);
-        String dni = travel.whoIsSited(seat);
+        String dni = seatPassengers.dni(travel.whoIsSited(seat));
         if(dni == null) return null;
         return searchPassenger(dni);
     }
 
 
+    /**
+     * Returns the occupied seats of a travel with their passengers, sorted by seat, as whoIsSited would
+     * return them one by one. In case of not success returns null.
+     * @param travelID String
+     * @return Map<Integer, Passenger>
+     */
+    public Map<Integer, Passenger> seatMap(String travelID){
+        Travel travel = searchTravel(travelID);
+        if (travel == null) return null;
+
+        Map<Integer, Passenger> seatMap = new TreeMap<>();
+        for (int seat = 1; seat <= travel.getSeatsNumber(); seat++) {
+            String dni = seatPassengers.dni(travel.whoIsSited(seat));
+            Passenger passenger = dni == null ? null : searchPassenger(dni);
+            if (passenger != null) {
+                seatMap.put(seat, passenger);
+            }
+        }
+        return seatMap;
+    }
+
+
     /**
      * Saves the passengers on a file.
      * @param fileName String
      * @throws IOException
      */
     public void savePassengers (String fileName) throws IOException {
-        PrintWriter file = new PrintWriter( new BufferedWriter( new FileWriter(fileName)));
-
-        for (Passenger element : passengers) {
-            element.save(file);
-        }
-        file.close();
+        save(fileName, file -> {
+            for (Passenger element : passengers.values()) {
+                element.save(file);
+            }
+        });
     }
 
 
@@ -190,35 +895,94 @@ public class SalesDesk {
      * @throws IOException
      */
     public void saveTravelsStatus (String fileName) throws IOException {
-        PrintWriter file = new PrintWriter( new BufferedWriter( new FileWriter(fileName)));
+        save(fileName, file -> {
+            for(Travel travel : travels.values()){
+                travel.saveTravelStatus(file, seatPassengers);
+            }
+        });
+    }
+
 
-        for(Travel travel : travels){
-            travel.saveTravelStatus(file);
+    /**
+     * Saves a file. The files are written by one thread at a time. The file is written aside and then
+     * moved over the previous one, so a crash while saving never leaves a half written file.
+     * @param fileName String
+     * @param content Consumer<PrintWriter> writes the file content
+     * @throws IOException
+     */
+    private static void save(String fileName, Consumer<PrintWriter> content) throws IOException {
+        storageLock.lock();
+        try {
+            String temporaryFileName = fileName + TEMPORARY_FILE_EXTENSION;
+            PrintWriter file = new PrintWriter( new BufferedWriter( new FileWriter(temporaryFileName)));
+
+            content.accept(file);
+            file.close();
+            if (file.checkError()) {
+                throw new IOException(temporaryFileName);
+            }
+            Files.move(Paths.get(temporaryFileName), Paths.get(fileName), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            storageLock.unlock();
+        }
+    }
+
+
+    /**
+     * Reads the lines of a file. Large files are split in chunks parsed in parallel.
+     * @param file String
+     * @param line Consumer<String> parses a line
+     * @throws IOException
+     */
+    static void readLines(String file, Consumer<String> line) throws IOException {
+        try (Stream<String> lines = Files.lines(Paths.get(file), Charset.defaultCharset())) {
+            if (Files.size(Paths.get(file)) >= PARALLEL_LOAD_SIZE) {
+                lines.parallel().forEach(line);
+            } else {
+                lines.forEach(line);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+
+    /**
+     * Reads the elements of a file. Large files are split in chunks parsed in parallel, but the elements are
+     * added one by one in file order, so the first of several elements with the same key is always kept.
+     * @param file String
+     * @param parse Function<String, T> parses a line, or returns null to skip it
+     * @param add Consumer<T> adds an element
+     * @throws IOException
+     */
+    static <T> void readLines(String file, Function<String, T> parse, Consumer<T> add) throws IOException {
+        try (Stream<String> lines = Files.lines(Paths.get(file), Charset.defaultCharset())) {
+            Stream<String> chunks = Files.size(Paths.get(file)) >= PARALLEL_LOAD_SIZE ? lines.parallel() : lines;
+            chunks.map(parse).filter(Objects::nonNull).forEachOrdered(add);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
         }
-        file.close();
     }
 
 
     /**
      * Reads the passengers from a file.
      * @param file String
+     * @param loadedPassengers Map<String, Passenger> where the passengers are added by DNI
      */
-    public void readPassengers (String file){
+    public void readPassengers (String file, Map<String, Passenger> loadedPassengers){
         try {
-            BufferedReader bufferedReader = new BufferedReader(new FileReader(file));
-            String line = bufferedReader.readLine();
-
-            while(line != null){
+            readLines(file, line -> {
                 try{
-                    passengers.add(new Passenger(line));
+                    return new Passenger(line);
                 } catch (NoSuchElementException ne) {
                     JOptionPane.showMessageDialog(null,
                             location.getLabel(location.ERROR_READING_A_PASSENGER),
                             "", JOptionPane.ERROR_MESSAGE);
+                    return null;
                 }
-                line = bufferedReader.readLine();
-
-            }
+            }, passenger -> loadedPassengers.putIfAbsent(passenger.getDni(), passenger));
         } catch (IOException e) {
             JOptionPane.showMessageDialog(null,
                     location.getLabel(location.ERROR_READING_PASSENGERS),
@@ -228,24 +992,28 @@ public class SalesDesk {
 
 
     /**
-     * Reads the travels from a file.
+     * Reads the travels from a file. Only the first travel of each ID is kept and takes its seats.
      * @param file String
+     * @param loadedTravels Map<String, Travel> where the travels are added by ID
      */
-    public void readTravels (String file){
-        try (BufferedReader bufferedReader = new BufferedReader(new FileReader(file))) {
-            String line = bufferedReader.readLine();
-
-            while(line != null) {
+    public void readTravels (String file, Map<String, Travel> loadedTravels){
+        Map<String, String> dictionary = new ConcurrentHashMap<>(); //Places and bus info, only while loading
+        try {
+            readLines(file, line -> {
                 try {
-                    travels.add(new Travel(line));
+                    return new Travel(line, dictionary);
                 } catch (NoSuchElementException e) {
                     JOptionPane.showMessageDialog(null,
                             location.getLabel(location.ERROR_READING_A_TRAVEL) +
                                     COLON + line.split(ELEMENTS_SEPARATOR)[0],
                             "", JOptionPane.ERROR_MESSAGE);
+                    return null;
                 }
-                line = bufferedReader.readLine();
-            }
+            }, travel -> {
+                if (loadedTravels.putIfAbsent(travel.getId(), travel) == null) {
+                    travel.allocateSeats(seatStore);
+                }
+            });
         } catch (IOException e) {
             JOptionPane.showMessageDialog(null,
                     location.getLabel(location.ERROR_READING_TRAVELS),
@@ -255,25 +1023,26 @@ public class SalesDesk {
 
 
     /**
-     * Reads seats status of a travel from a file.
+     * Reads seats status of a travel from a file. Each line is joined to its travel by ID at once.
      * @param file String
+     * @param travelsByID Map<String, Travel>
      */
-    public void readTravelsStatus (String file) {
-        try (BufferedReader bufferedReader = new BufferedReader(new FileReader(file))) {
-            String line = bufferedReader.readLine();
-
-            while(line != null) {
-                String readID = line.split(ELEMENTS_SEPARATOR)[0]; //The first element on each line is the ID.
-                for(Travel travel : travels){ //For each travel on the travels Set.
-                    if(readID.equals(travel.getId())) { //Compares the read Id against the actual travel.
+    public void readTravelsStatus (String file, Map<String, Travel> travelsByID) {
+        try {
+            readLines(file, line -> {
+                int idEnd = line.indexOf(ELEMENTS_SEPARATOR); //The first element on each line is the ID.
+                String readID = idEnd < 0 ? line : line.substring(0, idEnd);
+                Travel travel = travelsByID.get(readID);
+                if (travel != null) {
+                    try {
                         loadPassengersIntoTravel(travel, line);
-                        break;
+                    } catch (SeatsReadException e) {
+                        System.out.println(e.getMessage());
                     }
                 }
-                line = bufferedReader.readLine(); //Next line
-            }
+            });
         } catch (IOException e) {
-            System.out.println(location.ERROR_READING_STATUS);
+            System.out.println(location.getLabel(location.ERROR_READING_STATUS));
         }
     }
 
@@ -284,46 +1053,153 @@ public class SalesDesk {
      * @param line String
      */
     public void loadPassengersIntoTravel(Travel travel, String line){
-        String assignation;
-        //Separates each pair of seats and DNIs
-        Scanner elements = new Scanner(line).useDelimiter(ELEMENTS_SEPARATOR);
-        elements.next(); //Skips the id
+        loadPassengersIntoTravel(travel, line, seatPassengers);
+    }
+
+
+    /**
+     * Receives a String containing the seats and DNIs and assigns them to a travel.
+     * @param travel Travel
+     * @param line String
+     * @param passengers PassengerTable gives the passenger handles assigned to the seats
+     */
+    static void loadPassengersIntoTravel(Travel travel, String line, PassengerTable passengers){
+        //Walks the pairs of seats and DNIs in place, without splitting the whole line.
+        int start = line.indexOf(ELEMENTS_SEPARATOR); //Skips the id
 
-        while(elements.hasNext()) { //For each pair of seat and DNI.
-            assignation = elements.next();
+        while(start >= 0) { //For each pair of seat and DNI.
+            int end = line.indexOf(ELEMENTS_SEPARATOR, start + 1);
+            String assignation = end < 0 ? line.substring(start + 1) : line.substring(start + 1, end);
+            start = end;
+            if (assignation.isEmpty()) {
+                continue;
+            }
             //Separates the seat and the DNI
-            Scanner seatDni = new Scanner(assignation).useDelimiter(DNI_SEAT_SEPARATOR);
+            int separator = assignation.indexOf(DNI_SEAT_SEPARATOR);
 
             //Assigns the passenger ID to the seat on the received travel.
             try {
-                if (!travel.assignSeat(seatDni.nextInt(), seatDni.next())) {
+                int seat = Integer.parseInt(assignation.substring(0, separator));
+                if (seat <= 0 || seat > travel.getSeatsNumber()
+                        || !travel.assignSeat(seat, passengers.handle(assignation.substring(separator + 1)))) {
                     throw new SeatsReadException("SEAT", null);
                 }
-            } catch (NumberFormatException e){
+            } catch (NumberFormatException | StringIndexOutOfBoundsException e){
                 throw new SeatsReadException("TRAVEL", assignation);
             }
         }
     }
 
 
+    /**
+     * Indexes the travels by day. The travels of each day are sorted by date.
+     * @param loadedTravels Collection<Travel>
+     * @return NavigableMap<Long, List<Travel>>
+     */
+    private static NavigableMap<Long, List<Travel>> travelsPerDay(Collection<Travel> loadedTravels) {
+        NavigableMap<Long, List<Travel>> travelsPerDay = new ConcurrentSkipListMap<>();
+        for (Travel travel : loadedTravels) {
+            travelsPerDay.computeIfAbsent(travel.getEpochDay(), day -> new ArrayList<>()).add(travel);
+        }
+        travelsPerDay.replaceAll((day, travels) -> {
+            travels.sort(Comparator.comparingLong(Travel::getDeparture));
+            return Collections.unmodifiableList(travels);
+        });
+        return travelsPerDay;
+    }
+
+
+    /**
+     * Indexes the travels by origin and destiny, and the travels of each route by day. Origins and destinies
+     * are kept in upper case, so they are compared ignoring case.
+     * @param loadedTravels Collection<Travel>
+     * @return Map<String, Map<String, NavigableMap<Long, List<Travel>>>>
+     */
+    private static Map<String, Map<String, NavigableMap<Long, List<Travel>>>> travelsPerRoute(
+            Collection<Travel> loadedTravels) {
+
+        Map<String, Map<String, List<Travel>>> routes = new HashMap<>();
+        for (Travel travel : loadedTravels) {
+            routes.computeIfAbsent(travel.getOrigin().toUpperCase(Locale.ROOT), origin -> new HashMap<>())
+                    .computeIfAbsent(travel.getDestiny().toUpperCase(Locale.ROOT), destiny -> new ArrayList<>())
+                    .add(travel);
+        }
+
+        Map<String, Map<String, NavigableMap<Long, List<Travel>>>> travelsPerRoute = new ConcurrentHashMap<>();
+        for (Map.Entry<String, Map<String, List<Travel>>> origin : routes.entrySet()) {
+            Map<String, NavigableMap<Long, List<Travel>>> destinies = new ConcurrentHashMap<>();
+            for (Map.Entry<String, List<Travel>> destiny : origin.getValue().entrySet()) {
+                destinies.put(destiny.getKey(), travelsPerDay(destiny.getValue()));
+            }
+            travelsPerRoute.put(origin.getKey(), destinies);
+        }
+        return travelsPerRoute;
+    }
+
+
+    /**
+     * Returns the travels of an index between two days, both included, sorted by date.
+     * @param travelsPerDay NavigableMap<Long, List<Travel>>
+     * @param from GregorianCalendar (null for no first day)
+     * @param to GregorianCalendar (null for no last day)
+     * @return List<Travel>
+     */
+    private static List<Travel> travelsBetweenDates(NavigableMap<Long, List<Travel>> travelsPerDay,
+                                                    GregorianCalendar from, GregorianCalendar to) {
+        List<Travel> foundTravels = new ArrayList<>();
+        if (from != null) {
+            travelsPerDay = travelsPerDay.tailMap(Travel.epochDay(from), true);
+        }
+        if (to != null) {
+            travelsPerDay = travelsPerDay.headMap(Travel.epochDay(to), true);
+        }
+
+        for (List<Travel> day : travelsPerDay.values()) {
+            foundTravels.addAll(day);
+        }
+        return foundTravels;
+    }
+
+
     /**
      * Searches the travels for a concrete date.
      * @param date String
      * @return Collection LinkedList
      */
     public List searchTravelsPerDate(GregorianCalendar date){
-        List foundTravels = new ArrayList();
-        int day = date.get(GregorianCalendar.DAY_OF_MONTH);
-        int month = date.get(GregorianCalendar.MONTH);
-        int year = date.get(GregorianCalendar.YEAR);
-
-        for (Travel element : travels) {
-            if (element.getDate().get(GregorianCalendar.DAY_OF_MONTH) == day
-                    && element.getDate().get(GregorianCalendar.MONTH) == month
-                    && element.getDate().get(GregorianCalendar.YEAR) == year) {
-                foundTravels.add(element);
-            }
+        return new ArrayList<>(travelsPerDay.getOrDefault(Travel.epochDay(date), Collections.emptyList()));
+    }
+
+
+    /**
+     * Searches the travels between two dates, both included, sorted by date.
+     * @param from GregorianCalendar
+     * @param to GregorianCalendar
+     * @return List<Travel>
+     */
+    public List<Travel> searchTravelsBetweenDates(GregorianCalendar from, GregorianCalendar to){
+        if (Travel.epochDay(from) > Travel.epochDay(to)) {
+            return new ArrayList<>();
         }
-        return foundTravels;
+        return travelsBetweenDates(travelsPerDay, from, to);
+    }
+
+
+    /**
+     * Searches the travels of a route, optionally between two dates (both included), sorted by date.
+     * @param origin String
+     * @param destiny String
+     * @param from GregorianCalendar (null for no first day)
+     * @param to GregorianCalendar (null for no last day)
+     * @return List<Travel>
+     */
+    public List<Travel> searchRoute(String origin, String destiny, GregorianCalendar from, GregorianCalendar to){
+        NavigableMap<Long, List<Travel>> route = travelsPerRoute
+                .getOrDefault(origin.toUpperCase(Locale.ROOT), Collections.emptyMap())
+                .get(destiny.toUpperCase(Locale.ROOT));
+        if (route == null || (from != null && to != null && Travel.epochDay(from) > Travel.epochDay(to))) {
+            return new ArrayList<>();
+        }
+        return travelsBetweenDates(route, from, to);
     }
 }
\ No newline at end of file
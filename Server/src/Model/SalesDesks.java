@@ -3,30 +3,35 @@ package Model;
 import Internationalization.Location;
 
 import java.util.GregorianCalendar;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class SalesDesks {
     private Map<String, SalesDesk> salesDesks;
     private Location location;
+    private Properties config;
 
 
     /**
      * Constructor method.
+     * @param location Location
+     * @param config Properties server configuration
      */
-    public SalesDesks(Location location) {
+    public SalesDesks(Location location, Properties config) {
         this.location = location;
-        salesDesks = new HashMap<>();
+        this.config = config;
+        salesDesks = new ConcurrentHashMap<>();
     }
 
 
     /**
-     *  Inserts new sales desk.
+     *  Inserts new sales desk if the company has not got one yet.
      * @param companyID String
      */
     public void newDesk(String companyID) {
-        salesDesks.put(companyID, new SalesDesk(location));
+        salesDesks.computeIfAbsent(companyID, id -> new SalesDesk(location, config));
     }
 
 
@@ -46,17 +51,15 @@ public class SalesDesks {
      * @param travel Travel
      * @param passenger Passenger
      * @param seat Integer
-     * @return Boolean
+     * @return Long travel seats version after the assignment, or SalesDesk.NOT_CHANGED
      */
-    public boolean assign(String companyID, Travel travel, Passenger passenger, int seat) {
+    public long assign(String companyID, Travel travel, Passenger passenger, int seat) {
         SalesDesk salesDesk = salesDesks.get(companyID);
 
         if (salesDesk == null) {
-            return false;
+            return SalesDesk.NOT_CHANGED;
         }
-        salesDesk.addPassenger(passenger);
-        salesDesk.assignSeat(travel, passenger, seat);
-        return true;
+        return salesDesk.book(travel, passenger, seat);
     }
 
 
@@ -65,17 +68,31 @@ public class SalesDesks {
      * @param companyID String
      * @param travel Travel
      * @param seat Integer
-     * @return Boolean
+     * @return Long travel seats version after the deallocation, or SalesDesk.NOT_CHANGED
+     */
+    public long deallocate(String companyID, Travel travel, int seat) {
+        SalesDesk salesDesk = salesDesks.get(companyID);
+
+        if (salesDesk == null) {
+            return SalesDesk.NOT_CHANGED;
+        }
+        return salesDesk.cancel(travel, seat);
+    }
+
+
+    /**
+     * Returns the bookings of a passenger.
+     * @param companyID String
+     * @param dni String
+     * @return List<Booking>
      */
-    public boolean deallocate(String companyID, Travel travel, int seat) {
+    public List<Booking> passengerBookings(String companyID, String dni) {
         SalesDesk salesDesk = salesDesks.get(companyID);
 
         if (salesDesk == null) {
-            return false;
+            return null;
         }
-        salesDesk.deletePassenger(salesDesk.whoIsSited(travel.getId(),seat));
-        salesDesk.deallocateSeat(travel, seat);
-        return true;
+        return salesDesk.passengerBookings(dni);
     }
 
 
@@ -128,6 +145,22 @@ public class SalesDesks {
     }
 
 
+    /**
+     * Returns the occupied seats of a travel with their passengers.
+     * @param companyID String
+     * @param travelID String
+     * @return Map<Integer, Passenger>
+     */
+    public Map<Integer, Passenger> seatMap(String companyID, String travelID) {
+        SalesDesk salesDesk = salesDesks.get(companyID);
+
+        if (salesDesk == null) {
+            return null;
+        }
+        return salesDesk.seatMap(travelID);
+    }
+
+
     /**
      * Searches all travels on a given date.
      * @param companyID
@@ -142,4 +175,41 @@ public class SalesDesks {
         }
         return salesDesk.searchTravelsPerDate(date);
     }
+
+
+    /**
+     * Searches all travels between two dates, both included.
+     * @param companyID String
+     * @param from GregorianCalendar
+     * @param to GregorianCalendar
+     * @return List<Travel>
+     */
+    public List<Travel> searchTravelsBetweenDates(String companyID, GregorianCalendar from, GregorianCalendar to) {
+        SalesDesk salesDesk = salesDesks.get(companyID);
+
+        if (salesDesk == null) {
+            return null;
+        }
+        return salesDesk.searchTravelsBetweenDates(from, to);
+    }
+
+
+    /**
+     * Searches the travels of a route, optionally between two dates.
+     * @param companyID String
+     * @param origin String
+     * @param destiny String
+     * @param from GregorianCalendar (null for no first day)
+     * @param to GregorianCalendar (null for no last day)
+     * @return List<Travel>
+     */
+    public List<Travel> searchRoute(String companyID, String origin, String destiny, GregorianCalendar from,
+                                    GregorianCalendar to) {
+        SalesDesk salesDesk = salesDesks.get(companyID);
+
+        if (salesDesk == null) {
+            return null;
+        }
+        return salesDesk.searchRoute(origin, destiny, from, to);
+    }
 }
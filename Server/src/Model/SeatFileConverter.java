@@ -0,0 +1,131 @@
+/*
+ * Type class Model.SeatFileConverter. One-shot tool to convert the saved seats status to a mapped seats
+ * file (see Model.MappedSeatStore), run with the server stopped before starting it with seat_store=mapped.
+ * The seats are read from the last snapshot or, if there is not any, from the seats status file. The
+ * journals are not needed: the server replays them over the seats file when it starts.
+ *
+ * Usage: java Model.SeatFileConverter [data directory, storage/data by default]
+ *
+ * Model.SeatFileConverter.java
+ *
+ * @version 2.0
+ * @author Pablo Sanz Alguacil
+ */
+
+package Model;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class SeatFileConverter {
+    private static final String DEFAULT_DATA_DIRECTORY = "storage/data";
+    private static final String TRAVELS_FILE = "travels.csv";
+    private static final String TRAVELS_STATUS_FILE = "status.csv";
+    private static final String SNAPSHOT_FILE = "snapshot.bin";
+    private static final String SEATS_FILE = "seats.bin";
+    private static final String ELEMENTS_SEPARATOR = ",";
+    private static final String EXISTING_SEATS_FILE = "The seats file already exists, nothing converted: ";
+    private static final String TRAVEL_READ_ERROR = "Error while reading a travel: ";
+    private static final String CONVERSION_ERROR = "Error while converting the seats: ";
+    private static final String CONVERTED = "Converted %d seats of %d travels from %s to %s%n";
+
+
+    /**
+     * Main method.
+     * @param args String[] data directory (optional)
+     */
+    public static void main(String[] args) {
+        Path data = Paths.get(args.length > 0 ? args[0] : DEFAULT_DATA_DIRECTORY);
+        Path seatsFile = data.resolve(SEATS_FILE);
+        if (Files.exists(seatsFile)) {
+            System.out.println(EXISTING_SEATS_FILE + seatsFile);
+            System.exit(1);
+        }
+
+        try {
+            Path source = data.resolve(SNAPSHOT_FILE);
+            long epoch = Snapshot.epoch(source.toString());
+            MappedSeatStore seatStore = new MappedSeatStore(seatsFile.toString(), epoch);
+            Map<String, Travel> travels = readTravels(data.resolve(TRAVELS_FILE).toString(), seatStore);
+
+            if (Snapshot.exists(source.toString())) {
+                Snapshot.load(source.toString(), new HashMap<>(), () -> travels, seatStore.getPassengers());
+            } else {
+                source = data.resolve(TRAVELS_STATUS_FILE);
+                readTravelsStatus(source.toString(), travels, seatStore.getPassengers());
+            }
+            seatStore.force(epoch);
+
+            long seats = 0;
+            for (Travel travel : travels.values()) {
+                seats += travel.getSeatsNumber() - travel.getFreeSeats();
+            }
+            System.out.printf(CONVERTED, seats, travels.size(), source, seatsFile);
+        } catch (IOException | UncheckedIOException e) {
+            System.out.println(CONVERSION_ERROR + e.getMessage());
+            try { //A half converted file would be taken as the seats by the next conversion
+                Files.deleteIfExists(seatsFile);
+                Files.deleteIfExists(Paths.get(seatsFile + MappedSeatStore.PASSENGERS_EXTENSION));
+            } catch (IOException ignored) {
+            }
+            System.exit(1);
+        }
+    }
+
+
+    /**
+     * Reads the travels from a file, with their seats on the seats file.
+     * @param file String
+     * @param seatStore SeatStore
+     * @return Map<String, Travel> travels by ID
+     * @throws IOException
+     */
+    private static Map<String, Travel> readTravels(String file, SeatStore seatStore) throws IOException {
+        Map<String, Travel> travels = new ConcurrentHashMap<>();
+        Map<String, String> dictionary = new ConcurrentHashMap<>();
+        SalesDesk.readLines(file, line -> {
+            try {
+                return new Travel(line, dictionary);
+            } catch (NoSuchElementException e) {
+                System.out.println(TRAVEL_READ_ERROR + line.split(ELEMENTS_SEPARATOR)[0]);
+                return null;
+            }
+        }, travel -> {
+            if (travels.putIfAbsent(travel.getId(), travel) == null) {
+                travel.allocateSeats(seatStore);
+            }
+        });
+        return travels;
+    }
+
+
+    /**
+     * Reads the seats status of the travels from a file.
+     * @param file String
+     * @param travels Map<String, Travel> travels by ID
+     * @param passengers PassengerTable gives the passenger handles assigned to the seats
+     * @throws IOException
+     */
+    private static void readTravelsStatus(String file, Map<String, Travel> travels, PassengerTable passengers)
+            throws IOException {
+
+        SalesDesk.readLines(file, line -> {
+            int idEnd = line.indexOf(ELEMENTS_SEPARATOR); //The first element on each line is the ID.
+            Travel travel = travels.get(idEnd < 0 ? line : line.substring(0, idEnd));
+            if (travel != null) {
+                try {
+                    SalesDesk.loadPassengersIntoTravel(travel, line, passengers);
+                } catch (SeatsReadException e) {
+                    System.out.println(e.getMessage());
+                }
+            }
+        });
+    }
+}
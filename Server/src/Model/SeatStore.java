@@ -0,0 +1,135 @@
+/*
+ * Type interface Model.SeatStore. Where the seats of the travels are kept: every travel asks the store for
+ * its seats once, when it is loaded. The seats hold passenger handles of the store table (see
+ * Model.PassengerTable), which are also their occupancy record: a seat is occupied while it holds a
+ * handle. They can be changed by several threads at once; a seat is taken or freed on its handle.
+ *
+ * Model.SeatStore.java
+ *
+ * @version 2.0
+ * @author Pablo Sanz Alguacil
+ */
+
+package Model;
+
+import java.io.IOException;
+
+interface SeatStore {
+    String HEAP = "heap";
+    String OFF_HEAP = "offheap";
+    String MAPPED = "mapped";
+
+
+    /**
+     * Seats of a travel, numbered from 1.
+     */
+    interface Seats {
+
+        /**
+         * Returns the handle of the passenger sited on a seat.
+         * @param seat Integer
+         * @return Integer passenger handle, PassengerTable.NONE if the seat is free
+         */
+        int get(int seat);
+
+
+        /**
+         * Assigns a free seat to a passenger. Only one of several threads assigning the same seat succeeds.
+         * @param seat Integer
+         * @param passenger Integer passenger handle
+         * @return Boolean true if the seat was free
+         */
+        boolean assign(int seat, int passenger);
+
+
+        /**
+         * Frees a seat. Only one of several threads freeing the same seat succeeds.
+         * @param seat Integer
+         * @return Boolean true if the seat was occupied
+         */
+        boolean release(int seat);
+
+
+        /**
+         * Checks if a seat is occupied, on its handle: it always agrees with get.
+         * @param seat Integer
+         * @return Boolean
+         */
+        boolean isOccupied(int seat);
+
+
+        /**
+         * Counts the occupied seats, walking them. The count is exact when no seat changes meanwhile (i.e.
+         * when the travel is loaded); the travel then keeps its own counter.
+         * @return Integer
+         */
+        int countOccupied();
+    }
+
+
+    /**
+     * Gives the seats of a travel, all of them free unless the store kept them from the last run.
+     * @param travelID String
+     * @param seatsNumber Integer
+     * @return Seats
+     */
+    Seats allocate(String travelID, int seatsNumber);
+
+
+    /**
+     * Returns the table of the passenger handles held by the seats.
+     * @return PassengerTable
+     */
+    PassengerTable getPassengers();
+
+
+    /**
+     * Checks if the store kept seats from the last run. If it did not, every seat is read from the saved
+     * status.
+     * @return Boolean
+     */
+    default boolean holdsSeats() {
+        return false;
+    }
+
+
+    /**
+     * Checks if the store kept the seats of a travel from the last run, so they do not have to be read
+     * from the saved status. Asked once every travel is allocated.
+     * @param travelID String
+     * @return Boolean
+     */
+    default boolean holdsSeats(String travelID) {
+        return false;
+    }
+
+
+    /**
+     * Forces the seats to the disk, if the store keeps them on a file. The seats are then those of the
+     * snapshot of an epoch with the journaled changes after it.
+     * @param epoch Long of the last snapshot (0 if there is not any)
+     * @throws IOException
+     */
+    default void force(long epoch) throws IOException {
+    }
+
+
+    /**
+     * Returns the store of a seat_store configuration value: "offheap", "mapped" or, by default, "heap".
+     * @param mode String
+     * @param fileName String file of the mapped seats
+     * @param epoch Long of the last snapshot (0 if there is not any): the mapped seats are kept only if
+     * they were forced with it
+     * @return SeatStore
+     * @throws IOException if the mapped seats file can not be opened
+     */
+    static SeatStore of(String mode, String fileName, long epoch) throws IOException {
+        if (OFF_HEAP.equalsIgnoreCase(mode)) {
+            return new OffHeapSeatStore();
+        }
+        if (MAPPED.equalsIgnoreCase(mode)) {
+            return new MappedSeatStore(fileName, epoch);
+        }
+        return new HeapSeatStore();
+    }
+}
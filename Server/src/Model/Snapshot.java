@@ -0,0 +1,176 @@
+/*
+ * Type class Model.Snapshot. Point-in-time copy of the passengers and the seats occupancy of the travels on
+ * a compact binary file. It replaces the passengers and seats status files as the saved state: on startup
+ * the snapshot is loaded and only the journal changes appended after it are replayed.
+ *
+ * Format (DataOutputStream): magic, format version and epoch, then every passenger (DNI, name, surname)
+ * and every travel with its occupied seats (ID, then seat and DNI of each one). Every element is preceded
+ * by a true boolean and each list ends with a false one. The epoch numbers the snapshots, so the seats
+ * kept on a file (see Model.MappedSeatStore) can tell which snapshot they were saved with; snapshots of the
+ * first format version have none and are read as epoch 0.
+ *
+ * Model.Snapshot.java
+ *
+ * @version 2.0
+ * @author Pablo Sanz Alguacil
+ */
+
+package Model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.Supplier;
+
+class Snapshot {
+    private static final int MAGIC = 0x53454154; // "SEAT"
+    private static final int FORMAT_VERSION = 2;
+    private static final int FIRST_FORMAT_VERSION = 1; //Without epoch
+    private static final String TEMPORARY_FILE_EXTENSION = ".tmp";
+    private static final String FORMAT_ERROR = "Unknown snapshot format";
+
+
+    /**
+     * Checks if a snapshot file exists.
+     * @param fileName String
+     * @return Boolean
+     */
+    static boolean exists(String fileName) {
+        return Files.exists(Paths.get(fileName));
+    }
+
+
+    /**
+     * Returns the epoch of a snapshot, or 0 if there is not any.
+     * @param fileName String
+     * @return Long
+     * @throws IOException
+     */
+    static long epoch(String fileName) throws IOException {
+        if ( ! exists(fileName)) {
+            return 0;
+        }
+        try (DataInputStream file = new DataInputStream(new BufferedInputStream(new FileInputStream(fileName)))) {
+            return readHeader(file, fileName);
+        }
+    }
+
+
+    /**
+     * Reads the header of a snapshot.
+     * @param file DataInputStream
+     * @param fileName String
+     * @return Long epoch
+     * @throws IOException if it is not a snapshot of a known format version
+     */
+    private static long readHeader(DataInputStream file, String fileName) throws IOException {
+        if (file.readInt() != MAGIC) {
+            throw new IOException(FORMAT_ERROR + ": " + fileName);
+        }
+        int version = file.readInt();
+        if (version == FIRST_FORMAT_VERSION) {
+            return 0;
+        }
+        if (version != FORMAT_VERSION) {
+            throw new IOException(FORMAT_ERROR + ": " + fileName);
+        }
+        return file.readLong();
+    }
+
+
+    /**
+     * Saves a snapshot. It is written aside, forced to the disk and then moved over the previous one.
+     * The passengers and seats may change meanwhile; each one is saved as it is when it is read.
+     * @param fileName String
+     * @param epoch Long one more than the epoch of the previous snapshot
+     * @param passengers Collection<Passenger>
+     * @param travels Collection<Travel>
+     * @param seats PassengerTable DNIs of the passenger handles on the seats
+     * @throws IOException
+     */
+    static void save(String fileName, long epoch, Collection<Passenger> passengers, Collection<Travel> travels,
+                     PassengerTable seats) throws IOException {
+
+        String temporaryFileName = fileName + TEMPORARY_FILE_EXTENSION;
+        FileOutputStream fileOutputStream = new FileOutputStream(temporaryFileName);
+
+        try (DataOutputStream file = new DataOutputStream(new BufferedOutputStream(fileOutputStream))) {
+            file.writeInt(MAGIC);
+            file.writeInt(FORMAT_VERSION);
+            file.writeLong(epoch);
+
+            for (Passenger passenger : passengers) {
+                file.writeBoolean(true);
+                file.writeUTF(passenger.getDni());
+                file.writeUTF(passenger.getName());
+                file.writeUTF(passenger.getSurname());
+            }
+            file.writeBoolean(false);
+
+            for (Travel travel : travels) {
+                file.writeBoolean(true);
+                file.writeUTF(travel.getId());
+                for (int seat = 1; seat <= travel.getSeatsNumber(); seat++) {
+                    String dni = seats.dni(travel.whoIsSited(seat));
+                    if (dni != null) {
+                        file.writeBoolean(true);
+                        file.writeInt(seat);
+                        file.writeUTF(dni);
+                    }
+                }
+                file.writeBoolean(false);
+            }
+            file.writeBoolean(false);
+
+            file.flush();
+            fileOutputStream.getFD().sync();
+        }
+
+        Files.move(Paths.get(temporaryFileName), Paths.get(fileName), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+
+    /**
+     * Loads a snapshot. The seats of travels which are not on the catalogue any more are skipped.
+     * @param fileName String
+     * @param passengers Map<String, Passenger> where the passengers are added by DNI
+     * @param catalogue Supplier<Map<String, Travel>> catalogue by ID where the seats are assigned, asked
+     * once the passengers are read
+     * @param seats PassengerTable gives the passenger handles assigned to the seats
+     * @throws IOException
+     */
+    static void load(String fileName, Map<String, Passenger> passengers, Supplier<Map<String, Travel>> catalogue,
+                     PassengerTable seats) throws IOException {
+
+        try (DataInputStream file = new DataInputStream(new BufferedInputStream(new FileInputStream(fileName)))) {
+            readHeader(file, fileName);
+
+            while (file.readBoolean()) {
+                Passenger passenger = new Passenger(file.readUTF(), file.readUTF(), file.readUTF());
+                passengers.put(passenger.getDni(), passenger);
+            }
+
+            Map<String, Travel> travels = catalogue.get();
+            while (file.readBoolean()) {
+                Travel travel = travels.get(file.readUTF());
+                while (file.readBoolean()) {
+                    int seat = file.readInt();
+                    String dni = file.readUTF();
+                    if (travel != null && seat > 0 && seat <= travel.getSeatsNumber()) {
+                        travel.assignSeat(seat, seats.handle(dni));
+                    }
+                }
+            }
+        }
+    }
+}
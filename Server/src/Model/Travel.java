@@ -1,6 +1,11 @@
 /*
  * Type class Model.Travel. Contains an id, origin, destiny, date, seats distribution, and ifo about the bus.
  *
+ * Compact layout, as the server holds the whole catalogue: the date is kept as the departure minute, the
+ * seats distribution as its rows and columns, and the places and bus info of the loaded travels are shared
+ * through the dictionary of their load. Seats hold passenger handles of a PassengerTable, not DNIs, and are kept by the
+ * configured SeatStore (on the heap or out of it).
+ *
  * Model.Travel.java
  *
  * @version 2.0
@@ -9,59 +14,122 @@
 
 package Model;
 
-import java.beans.PropertyChangeSupport;
 import java.io.PrintWriter;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 
 public class Travel {
     private String id;
     private String origin;
     private String destiny;
-    private GregorianCalendar date;
+    private long departure; //Minutes since 1970-01-01 00:00 of the departure date and time (no time zone)
+    private short rows;
+    private short columns;
     private int seatsNumber;
-    private String[] seats;
-    private String seatsDistribution;
+    private SeatStore.Seats seats; //Passenger handles, which are also the occupancy
+    private volatile int freeSeats;
     private String info;
-    private PropertyChangeSupport observers;
+    private volatile long version;
+    private static final AtomicIntegerFieldUpdater<Travel> FREE_SEATS =
+            AtomicIntegerFieldUpdater.newUpdater(Travel.class, "freeSeats");
+    private static final AtomicLongFieldUpdater<Travel> VERSION =
+            AtomicLongFieldUpdater.newUpdater(Travel.class, "version");
     private static final String ELEMENTS_SEPARATOR = ",";
     private static final String DISTRIBUTION_SEPARATOR = "x";
     private static final String DNI_SEAT_SEPARATOR = "-";
+    private static final int MINUTES_PER_DAY = 24 * 60;
 
 
     /**
      * Constructor method to create a new Model.Travel from the received String. The String contains all
-     * data separated by ";" for each element.
+     * data separated by ";" for each element. It has no seats and its texts are not shared: a received
+     * travel is only used to look up the loaded one by its ID.
      * @param line String
      */
     public Travel(String line) throws NoSuchElementException {
-        Scanner scanner = new Scanner(line).useDelimiter(ELEMENTS_SEPARATOR);
-        id = scanner.next();
-        origin = scanner.next();
-        destiny = scanner.next();
-        date = parseDate(scanner);
-        seatsDistribution = scanner.next();
-        info = scanner.next();
-        observers = new PropertyChangeSupport(this);
+        this(line, null);
+    }
+
+
+    /**
+     * Constructor method to create a new Model.Travel from the received String. The String contains all
+     * data separated by ";" for each element. The travel has no seats until allocateSeats is called.
+     * @param line String
+     * @param dictionary Map<String, String> texts shared by the travels of a load, or null to keep them
+     */
+    Travel(String line, Map<String, String> dictionary) throws NoSuchElementException {
+        Fields fields = new Fields(line, ELEMENTS_SEPARATOR);
+        id = fields.next();
+        origin = share(fields.next(), dictionary);
+        destiny = share(fields.next(), dictionary);
+        departure = parseDeparture(fields);
+        Fields distribution = new Fields(fields.next(), DISTRIBUTION_SEPARATOR);
+        info = share(fields.next(), dictionary);
+
+        rows = (short) distribution.nextInt();
+        columns = (short) distribution.nextInt();
+        seatsNumber = (rows * columns) + 1;
+    }
 
-        Scanner distribution = new Scanner(seatsDistribution).useDelimiter(DISTRIBUTION_SEPARATOR);
-        seatsNumber = (distribution.nextInt() * distribution.nextInt()) + 1;
-        seats = new String[seatsNumber + 1];
+
+    /**
+     * Allocates the seats of the travel on a seat store. Called once, when the travel is kept: a travel
+     * whose ID was already loaded never takes seats of the store.
+     * @param seatStore SeatStore
+     */
+    void allocateSeats(SeatStore seatStore) {
+        seats = seatStore.allocate(id, seatsNumber);
+        int occupied = seats.countOccupied(); //Seats kept by the store from the last run
+        freeSeats = seatsNumber - occupied;
+        version = occupied; //As if they were assigned on load
+    }
+
+
+    /**
+     * Returns the shared copy of a text repeated on many travels (places, bus info).
+     * @param text String
+     * @param dictionary Map<String, String> or null to keep the text
+     * @return String
+     */
+    private static String share(String text, Map<String, String> dictionary) {
+        if (dictionary == null) {
+            return text;
+        }
+        String shared = dictionary.putIfAbsent(text, text);
+        return shared == null ? text : shared;
     }
 
 
     /**
-     * Parses a scanner to a Gregorian Calendar
-     * @param scanner Scanner
-     * @return
+     * Parses the next fields (day, month from 0, year, hour and minute) to the departure minute. Values out
+     * of range roll over as on a lenient Gregorian Calendar (i.e. the day 31 of a 30 days month is the
+     * first day of the next one).
+     * @param fields Fields
+     * @return Long
      */
-    public GregorianCalendar parseDate(Scanner scanner) {
-        int day = scanner.nextInt();
-        int month = scanner.nextInt();
-        int year = scanner.nextInt();
-        int hour = scanner.nextInt();
-        int minute = scanner.nextInt();
+    private long parseDeparture(Fields fields) {
+        int day = fields.nextInt();
+        int month = fields.nextInt();
+        int year = fields.nextInt();
+        int hour = fields.nextInt();
+        int minute = fields.nextInt();
+
+        LocalDateTime departure = LocalDateTime.of(year, 1, 1, 0, 0).plusMonths(month).plusDays(day - 1L)
+                .plusHours(hour).plusMinutes(minute);
+        return Math.floorDiv(departure.toEpochSecond(ZoneOffset.UTC), 60);
+    }
 
-        return new GregorianCalendar(year, month, day, hour, minute);
+
+    /**
+     * Returns the departure date and time.
+     * @return LocalDateTime
+     */
+    private LocalDateTime departureTime() {
+        return LocalDateTime.ofEpochSecond(departure * 60, 0, ZoneOffset.UTC);
     }
 
 
@@ -75,11 +143,78 @@ public class Travel {
 
 
     /**
-     * Returns the date
+     * Returns the origin.
+     * @return String
+     */
+    public String getOrigin(){
+        return origin;
+    }
+
+
+    /**
+     * Returns the destiny.
+     * @return String
+     */
+    public String getDestiny(){
+        return destiny;
+    }
+
+
+    /**
+     * Returns the date. It is built on each call; use getDeparture to compare or sort travels.
      * @return GregorianCalendar
      */
     public GregorianCalendar getDate(){
-        return date;
+        LocalDateTime departureTime = departureTime();
+        return new GregorianCalendar(departureTime.getYear(), departureTime.getMonthValue() - 1,
+                departureTime.getDayOfMonth(), departureTime.getHour(), departureTime.getMinute());
+    }
+
+
+    /**
+     * Returns the departure as minutes since 1970-01-01 00:00.
+     * @return Long
+     */
+    public long getDeparture(){
+        return departure;
+    }
+
+
+    /**
+     * Returns the day of the travel as days since 1970-01-01.
+     * @return Long
+     */
+    public long getEpochDay(){
+        return Math.floorDiv(departure, MINUTES_PER_DAY);
+    }
+
+
+    /**
+     * Returns the day of a date as days since 1970-01-01.
+     * @param date GregorianCalendar
+     * @return Long
+     */
+    static long epochDay(GregorianCalendar date){
+        return LocalDate.of(date.get(GregorianCalendar.YEAR), date.get(GregorianCalendar.MONTH) + 1,
+                date.get(GregorianCalendar.DAY_OF_MONTH)).toEpochDay();
+    }
+
+
+    /**
+     * Returns the seats version. It grows on every seat change, so sales desks can detect missed changes.
+     * @return Long
+     */
+    public long getVersion(){
+        return version;
+    }
+
+
+    /**
+     * Returns the number of seats.
+     * @return Integer
+     */
+    public int getSeatsNumber(){
+        return seatsNumber;
     }
 
 
@@ -103,12 +238,7 @@ public class Travel {
      */
     @Override
     public int hashCode() {
-        int result = 23;
-        result = 19 * result + origin.hashCode();
-        result = 19 * result + destiny.hashCode();
-        result = 19 * result + date.hashCode();
-        result = 19 * result + seatsDistribution.hashCode();
-        return 19 * result + id.hashCode();
+        return 19 * 23 + id.hashCode();
     }
 
 
@@ -119,15 +249,16 @@ public class Travel {
      */
     @Override
     public String toString() {
+        LocalDateTime departureTime = departureTime();
         return id + ELEMENTS_SEPARATOR +
                 origin + ELEMENTS_SEPARATOR +
                 destiny + ELEMENTS_SEPARATOR +
-                date.get(GregorianCalendar.DAY_OF_MONTH) + ELEMENTS_SEPARATOR +
-                date.get(GregorianCalendar.MONTH) + ELEMENTS_SEPARATOR +
-                date.get(GregorianCalendar.YEAR) + ELEMENTS_SEPARATOR +
-                date.get(GregorianCalendar.HOUR_OF_DAY)+ ELEMENTS_SEPARATOR +
-                date.get(GregorianCalendar.MINUTE) + ELEMENTS_SEPARATOR +
-                seatsDistribution + ELEMENTS_SEPARATOR +
+                departureTime.getDayOfMonth() + ELEMENTS_SEPARATOR +
+                (departureTime.getMonthValue() - 1) + ELEMENTS_SEPARATOR +
+                departureTime.getYear() + ELEMENTS_SEPARATOR +
+                departureTime.getHour() + ELEMENTS_SEPARATOR +
+                departureTime.getMinute() + ELEMENTS_SEPARATOR +
+                rows + DISTRIBUTION_SEPARATOR + columns + ELEMENTS_SEPARATOR +
                 info;
     }
 
@@ -135,13 +266,15 @@ public class Travel {
     /**
      * Saves the travel status throw the received PrintWriter.
      * @param printWriter PrintWriter
+     * @param passengers PassengerTable DNIs of the passenger handles
      */
-    public void saveTravelStatus(PrintWriter printWriter){
+    void saveTravelStatus(PrintWriter printWriter, PassengerTable passengers){
         StringBuilder line = new StringBuilder();
         line.append(id).append(ELEMENTS_SEPARATOR);
-        for(int i = 1; i < seats.length; i++){
-            if(seats[i] != null) {
-                line.append(i).append(DNI_SEAT_SEPARATOR).append(seats[i]).append(ELEMENTS_SEPARATOR);
+        for(int i = 1; i <= seatsNumber; i++){
+            String dni = passengers.dni(seats.get(i));
+            if(dni != null) {
+                line.append(i).append(DNI_SEAT_SEPARATOR).append(dni).append(ELEMENTS_SEPARATOR);
             }
         }
         printWriter.println(line);
@@ -149,14 +282,17 @@ public class Travel {
 
 
     /**
-     * Assigns a seat to a received passenger (only DNI). Returns true in case of success.
+     * Assigns a seat to a received passenger (only its handle). Returns true in case of success. The seat
+     * is taken with a compare-and-set of its handle, so when several threads try the same free seat only
+     * one wins; the winner then counts it.
      * @param seat Integer
-     * @param passengerID String
+     * @param passenger Integer passenger handle
      * @return boolean
      */
-    public boolean assignSeat(int seat, String passengerID){
-        if(seats[seat] == null){
-            seats[seat] = passengerID;
+    boolean assignSeat(int seat, int passenger){
+        if(seat > 0 && seat <= seatsNumber && passenger != PassengerTable.NONE && seats.assign(seat, passenger)){
+            FREE_SEATS.decrementAndGet(this);
+            VERSION.incrementAndGet(this);
             return true;
         }
         return false;
@@ -164,13 +300,15 @@ public class Travel {
 
 
     /**
-     * Removes the assigned passenger of the received seat.
+     * Removes the assigned passenger of the received seat. Returns true if the seat was occupied, so
+     * only one of several threads deallocating the same seat succeeds.
      * @param seat Integer
      * @return boolean
      */
-    public boolean deallocateSeat(int seat){
-        seats[seat] = null;
-        if(seats[seat] == null) {
+    boolean deallocateSeat(int seat){
+        if(seat > 0 && seat <= seatsNumber && seats.release(seat)) {
+            FREE_SEATS.incrementAndGet(this);
+            VERSION.incrementAndGet(this);
             return true;
         }
         return false;
@@ -183,24 +321,32 @@ public class Travel {
      * @return boolean
      */
     public boolean isSeatFree(int seat){
-        if(seat <= seatsNumber) {
-            return seats[seat] == null;
+        if(seat > 0 && seat <= seatsNumber) {
+            return ! seats.isOccupied(seat);
         }
         return false;
     }
 
 
     /**
-     * Returns the passenger DNI who is sited on the received seat.
+     * Returns the number of free seats.
+     * @return Integer
+     */
+    public int getFreeSeats(){
+        return freeSeats;
+    }
+
+
+    /**
+     * Returns the handle of the passenger who is sited on the received seat.
      * @param seat Integer
-     * @return String
-     * @throws NullPointerException
+     * @return Integer passenger handle, PassengerTable.NONE if the seat is free or does not exist
      */
-    public String whoIsSited(int seat) throws NullPointerException{
-        if(!isSeatFree(seat)){
-            return seats[seat];
+    int whoIsSited(int seat){
+        if(seat > 0 && seat <= seatsNumber){
+            return seats.get(seat);
         }
-            return null;
+            return PassengerTable.NONE;
     }
 
 